@@ -0,0 +1,172 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import BackpropagationNeuralNetwork.ArrayDataset;
+import BackpropagationNeuralNetwork.BackpropagationNeuralNetwork;
+import BackpropagationNeuralNetwork.Checkpoint;
+import BackpropagationNeuralNetwork.Checkpointer;
+import BackpropagationNeuralNetwork.Dataset;
+import BackpropagationNeuralNetwork.EarlyStopping;
+import BackpropagationNeuralNetwork.LearningRateSchedules;
+import BackpropagationNeuralNetwork.Optimizer;
+import BackpropagationNeuralNetwork.Optimizers;
+
+/**
+ * Vrification de la reprise au bit prs : un apprentissage interrompu puis
+ * repris  partir de son point de reprise doit finir exactement dans le mme
+ * tat que s'il n'avait jamais t interrompu.
+ *
+ * Chaque cas apprend TOTAL priodes d'une traite, puis les mmes priodes en
+ * deux fois, la seconde dans un rseau neuf restaur par Checkpoint.restore.
+ * L'tat final des deux apprentissages est crit dans un point de reprise, et
+ * les deux fichiers doivent tre identiques octet par octet : poids, tat de
+ * l'optimiseur, nombre de modifications, meilleur modle et pertes de
+ * l'arrt anticip. Les cas couvrent MOMENTUM et ADAM, par cas et par lots
+ * de 16, avec et sans EarlyStopping.
+ *
+ * Argument (optionnel) : rpertoire des points de reprise, un rpertoire
+ * temporaire par dfaut. Le code de sortie est 1 si un cas choue.
+ */
+public class CheckpointResumeCheck {
+    // Topologie et nombre de cas des donnes synthtiques
+    private static final int[] SIZES = { 8, 16, 3 };
+    private static final int ROWS = 256;
+    // Graines du dcoupage en validation et du mlange des cas
+    private static final long SPLIT_SEED = 7;
+    private static final long SHUFFLE_SEED = 11;
+    // Priodes en tout, et priode de l'interruption
+    private static final int TOTAL = 200;
+    private static final int INTERRUPTED = 100;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("checkpoint-check");
+        Random random = new Random(Topology.SEED);
+        float[][] inputs = new float[ROWS][];
+        float[][] targets = new float[ROWS][];
+        for (int r = 0; r < ROWS; r++) {
+            inputs[r] = Topology.randomMatrix(random, SIZES[0]);
+            targets[r] = Topology.randomTargets(random, 1, SIZES[SIZES.length - 1]);
+        }
+        ArrayDataset dataset = new ArrayDataset(inputs, targets, 64);
+
+        boolean passed = true;
+        for (Optimizer optimizer : new Optimizer[] { Optimizers.MOMENTUM, Optimizers.ADAM }) {
+            float learningRate = optimizer == Optimizers.ADAM ? 0.01f : 0.1f;
+            for (int batchSize : new int[] { 1, 16 }) {
+                String name = optimizer + ", lots de " + batchSize;
+                passed &= report(name, resume(directory, dataset, optimizer, batchSize, learningRate, false));
+                passed &= report(name + ", EarlyStopping",
+                        resume(directory, dataset, optimizer, batchSize, learningRate, true));
+            }
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean report(String name, boolean identical) {
+        System.out.println((identical ? "OK      " : "CHEC   ") + name);
+        return identical;
+    }
+
+    /**
+     * Apprendre d'une traite, puis en deux fois, et comparer les deux tats
+     * finaux
+     *
+     * @return (boolean), true si les deux points de reprise finaux sont
+     *         identiques
+     */
+    private static boolean resume(Path directory, ArrayDataset dataset, Optimizer optimizer, int batchSize,
+            float learningRate, boolean earlyStopping) throws IOException {
+        Path interrupted = directory.resolve("interrupted.ckpt");
+        Path uninterruptedEnd = directory.resolve("uninterrupted-end.ckpt");
+        Path resumedEnd = directory.resolve("resumed-end.ckpt");
+
+        // D'une traite
+        ArrayDataset[] parts = dataset.split(0.2, SPLIT_SEED);
+        Dataset training = parts[0].shuffle(SHUFFLE_SEED);
+        BackpropagationNeuralNetwork network = network(optimizer, Topology.SEED);
+        EarlyStopping stopping = earlyStopping ? stopping(parts[1]) : null;
+        long epoch = train(network, training, stopping, 0, TOTAL, batchSize, learningRate, null);
+        write(uninterruptedEnd, network, epoch, stopping);
+
+        // Interrompu  INTERRUPTED priodes
+        network = network(optimizer, Topology.SEED);
+        stopping = earlyStopping ? stopping(parts[1]) : null;
+        try (Checkpointer checkpointer = new Checkpointer(interrupted, network, SPLIT_SEED, SHUFFLE_SEED)) {
+            train(network, training, stopping, 0, INTERRUPTED, batchSize, learningRate, checkpointer);
+        }
+
+        // Repris dans un rseau neuf, aux poids de dpart diffrents, avec
+        // des jeux de donnes recrs  partir des graines du point de
+        // reprise
+        Checkpoint checkpoint = Checkpoint.read(interrupted);
+        long[] seeds = checkpoint.getSeeds();
+        parts = dataset.split(0.2, seeds[0]);
+        training = parts[0].shuffle(seeds[1]);
+        network = network(optimizer, Topology.SEED + 1);
+        stopping = earlyStopping ? stopping(parts[1]) : null;
+        if (stopping == null) {
+            checkpoint.restore(network);
+        } else {
+            checkpoint.restore(network, stopping);
+        }
+        epoch = train(network, training, stopping, checkpoint.getEpoch(), TOTAL, batchSize, learningRate, null);
+        write(resumedEnd, network, epoch, stopping);
+
+        return Arrays.equals(Files.readAllBytes(uninterruptedEnd), Files.readAllBytes(resumedEnd));
+    }
+
+    private static BackpropagationNeuralNetwork network(Optimizer optimizer, long seed) {
+        BackpropagationNeuralNetwork.Builder builder = BackpropagationNeuralNetwork.builder(SIZES[0]);
+        for (int i = 1; i < SIZES.length; i++) {
+            builder.layer(SIZES[i]);
+        }
+        return builder.optimizer(optimizer).seed(seed).build();
+    }
+
+    // Patience plus longue que l'apprentissage, pour apprendre toutes les
+    // priodes; validation toutes les 3 priodes
+    private static EarlyStopping stopping(Dataset validation) {
+        return new EarlyStopping(validation).patience(TOTAL).interval(3);
+    }
+
+    /**
+     * Apprendre les priodes [firstEpoch, lastEpoch[, avec un point de
+     * reprise  lastEpoch si checkpointer n'est pas null
+     *
+     * @return (long), priode suivante
+     */
+    private static long train(BackpropagationNeuralNetwork network, Dataset training, EarlyStopping stopping,
+            long firstEpoch, long lastEpoch, int batchSize, float learningRate, Checkpointer checkpointer)
+            throws IOException {
+        if (stopping != null) {
+            if (checkpointer != null) {
+                stopping.checkpoints(checkpointer, (int) lastEpoch);
+            }
+            return stopping.train(network, training, firstEpoch, lastEpoch, batchSize,
+                    LearningRateSchedules.constant(learningRate), 0.3f);
+        }
+        for (long epoch = firstEpoch; epoch < lastEpoch; epoch++) {
+            network.train(training, epoch, batchSize, learningRate, 0.3f);
+        }
+        if (checkpointer != null) {
+            checkpointer.checkpoint(lastEpoch);
+        }
+        return lastEpoch;
+    }
+
+    // tat final d'un apprentissage, pour la comparaison
+    private static void write(Path path, BackpropagationNeuralNetwork network, long epoch, EarlyStopping stopping)
+            throws IOException {
+        try (Checkpointer checkpointer = new Checkpointer(path, network, SPLIT_SEED, SHUFFLE_SEED)) {
+            checkpointer.checkpoint(epoch, stopping);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BackpropagationNeuralNetwork.ArrayDataset;
+import BackpropagationNeuralNetwork.BackpropagationNeuralNetwork;
+import BackpropagationNeuralNetwork.Dataset;
+
+/**
+ * Priode d'apprentissage complte sur ROWS cas en mmoire, en cas par
+ * seconde, un cas  la fois (batchSize = 1) ou par lots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EpochBenchmark {
+    // Nombre de cas par priode
+    static final int ROWS = 1024;
+
+    @Param({ "4-6-3", "64-256-10", "256-1024-100", "1024-4096-1000" })
+    public String topology;
+
+    @Param({ "1", "64" })
+    public int batchSize;
+
+    private BackpropagationNeuralNetwork network;
+    private Dataset dataset;
+    private long epoch;
+
+    @Setup
+    public void setUp() {
+        int[] sizes = Topology.parse(topology);
+        Random random = new Random(Topology.SEED);
+        network = Topology.network(sizes);
+        float[][] inputs = new float[ROWS][];
+        float[][] targets = new float[ROWS][];
+        for (int r = 0; r < ROWS; r++) {
+            inputs[r] = Topology.randomMatrix(random, sizes[0]);
+            targets[r] = Topology.randomTargets(random, 1, sizes[2]);
+        }
+        dataset = new ArrayDataset(inputs, targets, 256);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void epoch() throws IOException {
+        network.train(dataset, epoch++, batchSize, 0.001f, BackpropagationNeuralNetwork.MOMENTUM);
+    }
+}
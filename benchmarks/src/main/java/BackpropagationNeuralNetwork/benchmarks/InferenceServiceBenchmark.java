@@ -0,0 +1,149 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BackpropagationNeuralNetwork.InferenceHttpServer;
+import BackpropagationNeuralNetwork.InferenceService;
+
+/**
+ * Charge d'un InferenceService par des clients concurrents, chacun envoyant
+ * une requte  la fois : requtes par milliseconde et centiles de la latence
+ * vue par les clients, sans regroupement (lots d'une requte) puis avec.
+ *
+ * Les clients appellent soit submit directement, soit le point d'accs
+ * InferenceHttpServer sur l'interface locale. Un fil d'excution JMH par
+ * client : 32 par dfaut,  changer avec l'option "-t" de JMH.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(32)
+public class InferenceServiceBenchmark {
+
+    @Param({ "256-1024-100" })
+    public String topology;
+
+    @Param({ "1", "32" })
+    public int maxBatchSize;
+
+    @Param({ "100" })
+    public long maxWaitMicros;
+
+    @Param({ "submit", "http" })
+    public String transport;
+
+    private InferenceService service;
+    private InferenceHttpServer server;
+    private URL url;
+    // Donnes synthtiques, toujours les mmes, et leur corps HTTP
+    private float[][] inputs;
+    private byte[][] bodies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Pas d'algorithme de Nagle sur les rponses (voir
+        // InferenceHttpServer)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int[] sizes = Topology.parse(topology);
+        Random random = new Random(Topology.SEED);
+        service = new InferenceService(Topology.network(sizes).freeze(), maxBatchSize, maxWaitMicros);
+        inputs = new float[256][];
+        bodies = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = Topology.randomMatrix(random, sizes[0]);
+            StringBuilder body = new StringBuilder();
+            for (int j = 0; j < inputs[i].length; j++) {
+                body.append(j == 0 ? "" : ",").append(inputs[i][j]);
+            }
+            bodies[i] = body.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        if ("http".equals(transport)) {
+            server = new InferenceHttpServer(service, 0, 32);
+            url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+                    "/predict");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+        service.close();
+    }
+
+    /**
+     * Un client : chacun parcourt les cas  partir d'un point diffrent
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() % 256);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object predict(Client client) throws IOException, InterruptedException, ExecutionException {
+        int index = client.next;
+        client.next = (index + 1) % inputs.length;
+        if (server == null) {
+            return service.submit(inputs[index]).get();
+        }
+        return post(bodies[index]);
+    }
+
+    private byte[] post(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("HTTP " + connection.getResponseCode());
+        }
+        // Lire toute la rponse pour que la connexion soit rutilise
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
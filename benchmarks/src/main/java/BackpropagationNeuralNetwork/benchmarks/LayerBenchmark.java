@@ -0,0 +1,61 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BackpropagationNeuralNetwork.Activations;
+import BackpropagationNeuralNetwork.Layer;
+import BackpropagationNeuralNetwork.WeightInitializers;
+
+/**
+ * Latence de Layer.run et Layer.train pour un seul cas, selon la taille de la
+ * couche.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayerBenchmark {
+    // Neurones en entre - neurones en sortie
+    @Param({ "4-6", "6-3", "1024-4096", "4096-1000" })
+    public String shape;
+
+    private Layer layer;
+    private float[] input;
+    private float[] error;
+
+    @Setup
+    public void setUp() {
+        int[] sizes = Topology.parse(shape);
+        Random random = new Random(Topology.SEED);
+        layer = new Layer(sizes[0], sizes[1], Activations.SIGMOID, WeightInitializers.UNIFORM, Topology.SEED);
+        input = Topology.randomMatrix(random, sizes[0]);
+        error = Topology.randomMatrix(random, sizes[1]);
+        // Layer.train travaille sur les valeurs du dernier run
+        layer.run(input);
+    }
+
+    @Benchmark
+    public float[] run() {
+        return layer.run(input);
+    }
+
+    @Benchmark
+    public float[] train() {
+        return layer.train(error, 0.001f, 0.6f);
+    }
+}
@@ -0,0 +1,105 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BackpropagationNeuralNetwork.BackpropagationNeuralNetwork;
+import BackpropagationNeuralNetwork.InferenceModel;
+
+/**
+ * Rseau complet, du 4-6-3 de l'exercice jusqu' 1024-4096-1000 :
+ * <ul>
+ * <li>latence d'un passage vers l'avant pour un cas (run, predict);</li>
+ * <li>dbit en cas par seconde, un cas  la fois ou par lots de BATCH cas.</li>
+ * </ul>
+ * Avec le profileur GC (voir BenchmarkRunner), gc.alloc.rate.norm donne le
+ * nombre d'octets allous par opration.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+    // Nombre de cas par lot
+    static final int BATCH = 64;
+
+    @Param({ "4-6-3", "64-256-10", "256-1024-100", "1024-4096-1000" })
+    public String topology;
+
+    private BackpropagationNeuralNetwork network;
+    private InferenceModel model;
+    private float[] input;
+    private float[] target;
+    private float[] output;
+    private float[] inputs;
+    private float[] targets;
+    private float[] outputs;
+
+    @Setup
+    public void setUp() {
+        int[] sizes = Topology.parse(topology);
+        Random random = new Random(Topology.SEED);
+        network = Topology.network(sizes);
+        model = network.freeze();
+        inputs = Topology.randomMatrix(random, BATCH * sizes[0]);
+        targets = Topology.randomTargets(random, BATCH, sizes[2]);
+        outputs = new float[BATCH * sizes[2]];
+        input = new float[sizes[0]];
+        target = new float[sizes[2]];
+        output = new float[sizes[2]];
+        System.arraycopy(inputs, 0, input, 0, input.length);
+        System.arraycopy(targets, 0, target, 0, target.length);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] runSample() {
+        return network.run(input);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] predictSample() {
+        model.predict(input, output);
+        return output;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public float[] runBatch() {
+        network.runBatch(inputs, BATCH, outputs);
+        return outputs;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void trainSample() {
+        network.train(input, target, 0.001f, BackpropagationNeuralNetwork.MOMENTUM);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void trainBatch() {
+        network.trainBatch(inputs, targets, BATCH, 0.001f, BackpropagationNeuralNetwork.MOMENTUM);
+    }
+}
@@ -0,0 +1,70 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BackpropagationNeuralNetwork.BackpropagationNeuralNetwork;
+import BackpropagationNeuralNetwork.ParallelTrainer;
+
+/**
+ * Priode d'apprentissage de ParallelTrainer sur ROWS cas en mmoire, en cas
+ * par seconde, selon le nombre de fils d'excution et la taille des lots.
+ * L'acclration est le rapport avec le rsultat pour un seul fil.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelTrainerBenchmark {
+    // Nombre de cas par priode
+    static final int ROWS = 4096;
+
+    @Param({ "64-256-10", "256-1024-100" })
+    public String topology;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    @Param({ "64", "256" })
+    public int batchSize;
+
+    private ParallelTrainer trainer;
+    private float[] inputs;
+    private float[] targets;
+
+    @Setup
+    public void setUp() {
+        int[] sizes = Topology.parse(topology);
+        Random random = new Random(Topology.SEED);
+        inputs = Topology.randomMatrix(random, ROWS * sizes[0]);
+        targets = Topology.randomTargets(random, ROWS, sizes[sizes.length - 1]);
+        trainer = new ParallelTrainer(Topology.network(sizes), threads, batchSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        trainer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void trainEpoch() {
+        trainer.trainEpoch(inputs, targets, ROWS, 0.001f, BackpropagationNeuralNetwork.MOMENTUM);
+    }
+}
@@ -0,0 +1,75 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import BackpropagationNeuralNetwork.InferenceModel;
+import BackpropagationNeuralNetwork.QuantizedModel;
+
+/**
+ * Infrence avec les poids en float, en int8 et en float16 (voir
+ * QuantizedModel) : latence de predict pour un cas, du 4-6-3 de l'exercice
+ * jusqu' 1024-4096-1000.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuantizedBenchmark {
+
+    @Param({ "4-6-3", "64-256-10", "256-1024-100", "1024-4096-1000" })
+    public String topology;
+
+    private InferenceModel model;
+    private QuantizedModel int8;
+    private QuantizedModel float16;
+    private float[] input;
+    private float[] output;
+
+    @Setup
+    public void setUp() {
+        int[] sizes = Topology.parse(topology);
+        Random random = new Random(Topology.SEED);
+        model = Topology.network(sizes).freeze();
+        int8 = model.quantize(QuantizedModel.Format.INT8);
+        float16 = model.quantize(QuantizedModel.Format.FLOAT16);
+        input = Topology.randomMatrix(random, sizes[0]);
+        output = new float[sizes[2]];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] predictFloat() {
+        model.predict(input, output);
+        return output;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] predictInt8() {
+        int8.predict(input, output);
+        return output;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] predictFloat16() {
+        float16.predict(input, output);
+        return output;
+    }
+}
@@ -0,0 +1,66 @@
+package BackpropagationNeuralNetwork.benchmarks;
+
+import java.util.Random;
+
+import BackpropagationNeuralNetwork.BackpropagationNeuralNetwork;
+
+/**
+ * Outils communs aux bancs d'essai : lecture d'une topologie "entre-cachs-
+ * sortie", rseau et donnes alatoires reproductibles.
+ */
+final class Topology {
+    // Graine des donnes alatoires, la mme pour tous les bancs d'essai
+    static final long SEED = 42;
+
+    private Topology() {
+    }
+
+    /**
+     * @param topology
+     *            (String), par exemple "4-6-3"
+     * @return (int[]), nombre de neurones en entre, cachs et en sortie
+     */
+    static int[] parse(String topology) {
+        String[] parts = topology.split("-");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i]);
+        }
+        return sizes;
+    }
+
+    /**
+     * @return (BackpropagationNeuralNetwork), rseau de neurones sigmoides
+     *         aux poids de dpart tirs de SEED, les mmes  chaque excution
+     */
+    static BackpropagationNeuralNetwork network(int[] sizes) {
+        BackpropagationNeuralNetwork.Builder builder = BackpropagationNeuralNetwork.builder(sizes[0]);
+        for (int i = 1; i < sizes.length; i++) {
+            builder.layer(sizes[i]);
+        }
+        return builder.seed(SEED).build();
+    }
+
+    /**
+     * @return (float[]), valeurs alatoires entre 0 et 1
+     */
+    static float[] randomMatrix(Random random, int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat();
+        }
+        return values;
+    }
+
+    /**
+     * @return (float[]), un rsultat attendu binaire par ligne, un seul 1 par
+     *         ligne
+     */
+    static float[] randomTargets(Random random, int rows, int outputSize) {
+        float[] targets = new float[rows * outputSize];
+        for (int r = 0; r < rows; r++) {
+            targets[r * outputSize + random.nextInt(outputSize)] = 1f;
+        }
+        return targets;
+    }
+}
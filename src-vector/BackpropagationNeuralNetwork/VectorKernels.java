@@ -0,0 +1,189 @@
+package BackpropagationNeuralNetwork;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Boucles internes des couches vectorises avec l'API Vector
+ * (jdk.incubator.vector, Java 17 ou plus rcent). Charge par Kernels
+ * seulement si la JVM est lance avec "--add-modules jdk.incubator.vector".
+ *
+ * Chaque instruction traite SPECIES.length() floats  la fois : 8 avec AVX2,
+ * 16 avec AVX-512. Les dernires valeurs, moins nombreuses qu'un vecteur,
+ * et les lignes plus courtes qu'un vecteur (rseaux de quelques neurones)
+ * passent par les boucles scalaires de Kernels.
+ *
+ * Les multiplications et additions ne sont pas fusionnes ("fma") : chaque
+ * poids est calcul avec les mmes arrondis que la version scalaire, et les
+ * processeurs sans FMA ne tombent pas sur une mulation trs lente.
+ */
+final class VectorKernels extends Kernels {
+    // La plus grande taille de vecteur efficace sur ce processeur
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    // Poids int8 et float16 convertis en floats : au moins autant de lanes
+    // que SPECIES, et jamais moins de 64 bits (la plus petite forme). Avec
+    // des vecteurs de 128 bits, un vecteur d'octets donne deux vecteurs de
+    // floats. null si la forme n'existe pas : seul le noyau correspondant
+    // passe alors par la boucle scalaire.
+    private static final VectorSpecies<Byte> BYTE_SPECIES = species(byte.class, SPECIES.vectorBitSize() / 4);
+    private static final VectorSpecies<Short> SHORT_SPECIES = species(short.class, SPECIES.vectorBitSize() / 2);
+    private static final VectorSpecies<Integer> INT_SPECIES = species(int.class, SPECIES.vectorBitSize());
+
+    /**
+     * Constructeur
+     *
+     * @throws UnsupportedOperationException
+     *             si le processeur n'a pas d'instructions vectorielles pour
+     *             les floats
+     */
+    VectorKernels() {
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("No useful float vector species: " + SPECIES);
+        }
+    }
+
+    private static <E> VectorSpecies<E> species(Class<E> elementType, int bitSize) {
+        try {
+            return VectorSpecies.of(elementType, VectorShape.forBitSize(Math.max(64, bitSize)));
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int step = SPECIES.length();
+        if (length < step) {
+            return super.dot(a, aOffset, b, bOffset, length);
+        }
+        int bound = SPECIES.loopBound(length);
+        // Deux sommes partielles pour ne pas attendre la fin de chaque
+        // addition avant de commencer la suivante
+        FloatVector first = FloatVector.zero(SPECIES);
+        FloatVector second = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i + step < bound; i += 2 * step) {
+            first = first.add(FloatVector.fromArray(SPECIES, a, aOffset + i)
+                    .mul(FloatVector.fromArray(SPECIES, b, bOffset + i)));
+            second = second.add(FloatVector.fromArray(SPECIES, a, aOffset + i + step)
+                    .mul(FloatVector.fromArray(SPECIES, b, bOffset + i + step)));
+        }
+        if (i < bound) {
+            first = first.add(FloatVector.fromArray(SPECIES, a, aOffset + i)
+                    .mul(FloatVector.fromArray(SPECIES, b, bOffset + i)));
+            i += step;
+        }
+        float sum = first.add(second).reduceLanes(VectorOperators.ADD);
+        return sum + super.dot(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    @Override
+    float dotInt8(byte[] weights, int weightOffset, float[] b, int bOffset, int length) {
+        if (BYTE_SPECIES == null || length < BYTE_SPECIES.length()) {
+            return super.dotInt8(weights, weightOffset, b, bOffset, length);
+        }
+        int lanes = SPECIES.length();
+        int step = BYTE_SPECIES.length();
+        int parts = step / lanes;
+        int bound = BYTE_SPECIES.loopBound(length);
+        FloatVector sums = FloatVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += step) {
+            ByteVector bytes = ByteVector.fromArray(BYTE_SPECIES, weights, weightOffset + i);
+            for (int part = 0; part < parts; part++) {
+                FloatVector values = (FloatVector) bytes.convertShape(VectorOperators.B2F, SPECIES, part);
+                sums = sums.add(values.mul(FloatVector.fromArray(SPECIES, b, bOffset + i + part * lanes)));
+            }
+        }
+        return sums.reduceLanes(VectorOperators.ADD)
+                + super.dotInt8(weights, weightOffset + bound, b, bOffset + bound, length - bound);
+    }
+
+    @Override
+    float dotHalf(short[] weights, int weightOffset, float[] b, int bOffset, int length) {
+        if (SHORT_SPECIES == null || INT_SPECIES == null || length < SHORT_SPECIES.length()) {
+            return super.dotHalf(weights, weightOffset, b, bOffset, length);
+        }
+        int lanes = SPECIES.length();
+        int step = SHORT_SPECIES.length();
+        int parts = step / lanes;
+        int bound = SHORT_SPECIES.loopBound(length);
+        FloatVector sums = FloatVector.zero(SPECIES);
+        FloatVector rebias = FloatVector.broadcast(SPECIES, 0x1p112f);
+        for (int i = 0; i < bound; i += step) {
+            ShortVector shorts = ShortVector.fromArray(SHORT_SPECIES, weights, weightOffset + i);
+            for (int part = 0; part < parts; part++) {
+                // Mme conversion que Half.toFloat, sur toutes les lanes
+                IntVector halves = (IntVector) shorts.convertShape(VectorOperators.S2I, INT_SPECIES, part);
+                FloatVector values = halves.and(0x8000).lanewise(VectorOperators.LSHL, 16)
+                        .or(halves.and(0x7fff).lanewise(VectorOperators.LSHL, 13)).reinterpretAsFloats()
+                        .mul(rebias);
+                sums = sums.add(values.mul(FloatVector.fromArray(SPECIES, b, bOffset + i + part * lanes)));
+            }
+        }
+        return sums.reduceLanes(VectorOperators.ADD)
+                + super.dotHalf(weights, weightOffset + bound, b, bOffset + bound, length - bound);
+    }
+
+    @Override
+    void backward(float[] weights, int weightOffset, float[] deltaWeights, float[] inputs, int inputOffset,
+            float[] nextErrors, int nextErrorOffset, float delta, int length, float learningRate, float momentum) {
+        int step = SPECIES.length();
+        if (length < step) {
+            super.backward(weights, weightOffset, deltaWeights, inputs, inputOffset, nextErrors, nextErrorOffset,
+                    delta, length, learningRate, momentum);
+            return;
+        }
+        int bound = SPECIES.loopBound(length);
+        FloatVector deltas = FloatVector.broadcast(SPECIES, delta);
+        FloatVector rates = FloatVector.broadcast(SPECIES, learningRate);
+        FloatVector momentums = FloatVector.broadcast(SPECIES, momentum);
+        if (nextErrors != null) {
+            for (int j = 0; j < bound; j += step) {
+                FloatVector errors = FloatVector.fromArray(SPECIES, nextErrors, nextErrorOffset + j);
+                errors.add(FloatVector.fromArray(SPECIES, weights, weightOffset + j).mul(deltas))
+                        .intoArray(nextErrors, nextErrorOffset + j);
+            }
+        }
+        for (int j = 0; j < bound; j += step) {
+            int weightIndex = weightOffset + j;
+            FloatVector gradients = FloatVector.fromArray(SPECIES, inputs, inputOffset + j).mul(deltas);
+            FloatVector previous = FloatVector.fromArray(SPECIES, deltaWeights, weightIndex);
+            FloatVector.fromArray(SPECIES, weights, weightIndex)
+                    .add(gradients.mul(rates).add(momentums.mul(previous))).intoArray(weights, weightIndex);
+            gradients.intoArray(deltaWeights, weightIndex);
+        }
+        super.backward(weights, weightOffset + bound, deltaWeights, inputs, inputOffset + bound, nextErrors,
+                nextErrorOffset + bound, delta, length - bound, learningRate, momentum);
+    }
+
+    @Override
+    void update(float[] weights, float[] deltaWeights, float[] gradients, int length, float learningRate,
+            float momentum) {
+        int step = SPECIES.length();
+        int bound = SPECIES.loopBound(length);
+        FloatVector rates = FloatVector.broadcast(SPECIES, learningRate);
+        FloatVector momentums = FloatVector.broadcast(SPECIES, momentum);
+        for (int i = 0; i < bound; i += step) {
+            FloatVector gradient = FloatVector.fromArray(SPECIES, gradients, i);
+            FloatVector previous = FloatVector.fromArray(SPECIES, deltaWeights, i);
+            FloatVector.fromArray(SPECIES, weights, i).add(gradient.mul(rates).add(momentums.mul(previous)))
+                    .intoArray(weights, i);
+            gradient.intoArray(deltaWeights, i);
+        }
+        for (int i = bound; i < length; i++) {
+            float gradient = gradients[i];
+            weights[i] += gradient * learningRate + momentum * deltaWeights[i];
+            deltaWeights[i] = gradient;
+        }
+    }
+
+    @Override
+    String getName() {
+        return "vector " + SPECIES;
+    }
+}
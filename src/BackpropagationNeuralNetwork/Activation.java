@@ -0,0 +1,41 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Fonction d'activation d'une couche, applique  une ligne complte de
+ * valeurs  la fois pour que les boucles puissent tre vectorises. Voir
+ * Activations pour les fonctions fournies.
+ *
+ * La drive est toujours exprime  partir de la sortie de la fonction, dj
+ * calcule pendant le passage vers l'avant.
+ */
+public interface Activation {
+
+    /**
+     * Remplacer les sommes pondres d'une ligne par leur activation
+     *
+     * @param values
+     *            (float[]), les sommes pondres, remplaces sur place
+     * @param offset
+     *            (int), dbut de la ligne
+     * @param length
+     *            (int), nombre de neurones de la ligne
+     */
+    void activate(float[] values, int offset, int length);
+
+    /**
+     * Multiplier les erreurs d'une ligne par la drive de la fonction, pour
+     * obtenir les deltas de la rtropropagation
+     *
+     * @param outputs
+     *            (float[]), les sorties calcules par activate
+     * @param outputOffset
+     *            (int), dbut de la ligne des sorties
+     * @param errors
+     *            (float[]), les erreurs, remplaces sur place par les deltas
+     * @param errorOffset
+     *            (int), dbut de la ligne des erreurs
+     * @param length
+     *            (int), nombre de neurones de la ligne
+     */
+    void backpropagate(float[] outputs, int outputOffset, float[] errors, int errorOffset, int length);
+}
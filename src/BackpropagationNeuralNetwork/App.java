@@ -1,5 +1,10 @@
 package BackpropagationNeuralNetwork;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
 /**
  * Exercice : Utilisation d'un rseau de neurones  rtropropagation avec une
  * couche cache pour le regroupement/classement.
@@ -177,31 +182,220 @@ public class App {
                 new float[] { 0f, 0f, 1f }, new float[] { 0f, 0f, 1f }, new float[] { 0f, 0f, 1f },
                 new float[] { 0f, 0f, 1f } };
 
+        // Avec "--serve" suivi d'un fichier de modle et d'un port optionnel,
+        // le modle est servi en HTTP au lieu d'tre entran.
+        if (args.length > 1 && "--serve".equals(args[0])) {
+            serve(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 8080);
+            return;
+        }
+
+        // Avec "--quantize" suivi d'un fichier de modle, les modles
+        // quantifis sont compars au modle float sur les cas d'Iris.
+        if (args.length > 1 && "--quantize".equals(args[0])) {
+            printQuantization(InferenceModel.map(Paths.get(args[1])), trainingData, trainingResults);
+            return;
+        }
+
+        // Fichier de modle optionnel en argument : s'il existe, le rseau y
+        // est charg au lieu d'tre entran, sinon il y est enregistr aprs
+        // l'apprentissage. Avec "--search" avant le fichier, une recherche
+        // d'hyperparamtres remplace l'apprentissage d'un seul rseau et le
+        // meilleur rseau trouv est enregistr. Avec "--checkpoint" suivi
+        // d'un fichier avant le fichier de modle, un point de reprise y est
+        // crit toutes les 100 priodes; avec "--resume" suivi du mme
+        // fichier, l'apprentissage reprend l o il s'tait arrt.
+        boolean search = args.length > 0 && "--search".equals(args[0]);
+        boolean resume = args.length > 1 && "--resume".equals(args[0]);
+        Path checkpointPath = resume || args.length > 1 && "--checkpoint".equals(args[0]) ? Paths.get(args[1])
+                : null;
+        int pathIndex = search ? 1 : checkpointPath != null ? 2 : 0;
+        Path modelPath = args.length > pathIndex ? Paths.get(args[pathIndex]) : null;
+        if (modelPath != null && !search && checkpointPath == null && Files.exists(modelPath)) {
+            System.out.println("Modle charg : " + modelPath + "\n");
+            printPredictions(BackpropagationNeuralNetwork.load(modelPath), trainingData);
+            return;
+        }
+
+        // Les tableaux forment un petit jeu de donnes en mmoire, lu d'un
+        // seul morceau. Pour de gros fichiers, voir CsvDataset et
+        // BinaryDataset. Un cas sur cinq est mis de ct pour la validation :
+        // le rseau ne l'apprend jamais.  la reprise, les graines du point
+        // de reprise redonnent exactement les mmes jeux.
+        Checkpoint checkpoint = resume ? Checkpoint.read(checkpointPath) : null;
+        long[] seeds = checkpoint != null ? checkpoint.getSeeds()
+                : new long[] { System.nanoTime(), System.nanoTime() };
+        if (seeds.length != 2) {
+            throw new IllegalArgumentException("not a checkpoint of this application: " + checkpointPath);
+        }
+        ArrayDataset[] parts = new ArrayDataset(trainingData, trainingResults, trainingData.length).split(0.2,
+                seeds[0]);
+        Dataset dataset = parts[0].shuffle(seeds[1]);
+
+        if (search) {
+            search(dataset, parts[1], trainingData, modelPath);
+            return;
+        }
+
         // Rseau de neurones avec 4 neurones en entre, 6 neurones cachs et 3
         // neurones en sortie ... Expriementez avec un nombre variant de
-        // neurones cachs. :)
+        // neurones cachs (ou lancez la recherche avec "--search"). :)
         BackpropagationNeuralNetwork backpropagationNeuralNetwork = new BackpropagationNeuralNetwork(4, 6, 3);
 
-        // Itrer pour le nombre de priodes d'apprentissage...
-        for (int iterations = 0; iterations < BackpropagationNeuralNetwork.ITERATIONS; iterations++) {
+        // Mesures de l'apprentissage : afficher l'volution  tous les 1000
+        // tours, et les publier par JMX (JConsole, VisualVM...)
+        TrainingMetrics metrics = new TrainingMetrics().addSink(epochMetrics -> {
+            if ((epochMetrics.getEpoch() + 1) % 1000 == 0) {
+                System.out.println(epochMetrics);
+            }
+        });
+        metrics.register("iris");
+        backpropagationNeuralNetwork.setMetrics(metrics);
 
-            // Apprentissage...
-            for (int i = 0; i < trainingResults.length; i++) {
-                backpropagationNeuralNetwork.train(trainingData[i], trainingResults[i],
-                        BackpropagationNeuralNetwork.LEARNING_RATE, BackpropagationNeuralNetwork.MOMENTUM);
+        // Itrer au plus pour le nombre de priodes d'apprentissage, en
+        // modifiant les poids aprs chaque cas... mais s'arrter ds que la
+        // perte sur les cas de validation ne baisse plus depuis 500 priodes,
+        // et garder les poids de la meilleure priode.
+        EarlyStopping earlyStopping = new EarlyStopping(parts[1]).patience(500).minDelta(1e-4);
+        long firstEpoch = 0;
+        if (checkpoint != null) {
+            checkpoint.restore(backpropagationNeuralNetwork, earlyStopping);
+            firstEpoch = checkpoint.getEpoch();
+            System.out.println("Reprise  la priode #" + firstEpoch + " : " + checkpointPath);
+        }
+        Checkpointer checkpointer = null;
+        if (checkpointPath != null) {
+            checkpointer = new Checkpointer(checkpointPath, backpropagationNeuralNetwork, seeds);
+            earlyStopping.checkpoints(checkpointer, 100);
+        }
+        long started = System.nanoTime();
+        long epochs;
+        try {
+            epochs = earlyStopping.train(backpropagationNeuralNetwork, dataset, firstEpoch,
+                    BackpropagationNeuralNetwork.ITERATIONS, 1,
+                    LearningRateSchedules.constant(BackpropagationNeuralNetwork.LEARNING_RATE),
+                    BackpropagationNeuralNetwork.MOMENTUM);
+        } finally {
+            if (checkpointer != null) {
+                checkpointer.close();
             }
+        }
+        long elapsed = System.nanoTime() - started;
+        System.out.println("Arrt aprs " + epochs + " priodes, meilleure priode #"
+                + earlyStopping.getBestEpoch() + ", perte de validation " + earlyStopping.getBestLoss());
+        if (checkpointer != null) {
+            System.out.printf("%d points de reprise, %.2f ms sur le fil d'apprentissage (%.3f %% du temps)%n",
+                    checkpointer.getWriteCount(), checkpointer.getSnapshotNanos() / 1e6,
+                    100.0 * checkpointer.getSnapshotNanos() / elapsed);
+        }
+
+        // Tester : afficher le rsultat de chaque cas appris
+        System.out.println();
+        printPredictions(backpropagationNeuralNetwork, trainingData);
+
+        if (modelPath != null) {
+            backpropagationNeuralNetwork.save(modelPath);
+            System.out.println("Modle enregistr : " + modelPath);
+        }
+    }
+
+    // Servir un modle enregistr en HTTP sur l'interface locale : les
+    // requtes concurrentes sont regroupes en lots d'au plus 32 cas, sans
+    // attendre plus de 200 microsecondes
+    private static void serve(Path modelPath, int port) throws Exception {
+        // Pas d'algorithme de Nagle sur les rponses (voir
+        // InferenceHttpServer); ce programme n'a pas d'autre serveur HTTP
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        InferenceService service = new InferenceService(InferenceModel.map(modelPath), 32, 200);
+        service.getMetrics().register("iris");
+        InferenceHttpServer server = new InferenceHttpServer(service, port,
+                4 * Runtime.getRuntime().availableProcessors());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            service.close();
+        }));
+        System.out.println("Modle servi : " + modelPath);
+        System.out.println("$ curl -d 5.1,3.5,1.4,0.2 http://127.0.0.1:" + server.getPort() + "/predict");
+        System.out.println("$ curl http://127.0.0.1:" + server.getPort() + "/metrics");
+    }
+
+    // Recherche d'hyperparamtres : essayer plusieurs nombres de neurones
+    // cachs, taux d'apprentissage, inerties et poids de dpart, afficher le
+    // classement et garder le meilleur rseau
+    private static void search(Dataset training, Dataset validation, float[][] trainingData, Path modelPath)
+            throws Exception {
+        SearchSpace space = new SearchSpace().hiddenSizes(2).hiddenSizes(4).hiddenSizes(6).hiddenSizes(8)
+                .hiddenSizes(12).hiddenSizes(6, 6).learningRates(0.03f, 0.1f, 0.3f).momentums(0f, 0.3f, 0.6f)
+                .seeds(1, 2, 3);
+        long started = System.nanoTime();
+        List<SearchResult> leaderboard = new HyperparameterSearch(training, validation).epochs(50, 2000)
+                .patience(300).run(space.grid());
+        System.out.println(space.size() + " candidats en " + (System.nanoTime() - started) / 1000000 + " ms");
+        for (int i = 0; i < Math.min(10, leaderboard.size()); i++) {
+            System.out.println("#" + (i + 1) + " " + leaderboard.get(i));
+        }
 
-            // Tester : afficher l'volution  tous les 1000 tours...
-            if ((iterations + 1) % 1000 == 0) {
-                System.out.println("Priode #" + iterations + "\n");
-                for (int i = 0; i < trainingResults.length; i++) {
-                    float[] data = trainingData[i];
-                    float[] calculatedOutput = backpropagationNeuralNetwork.run(data);
-                    System.out.println(data[0] + ", " + data[1] + ", " + data[2] + ", " + data[3] + " --> "
-                            + Math.round(calculatedOutput[0]) + " - " + Math.round(calculatedOutput[1]) + " - "
-                            + Math.round(calculatedOutput[2]));
+        BackpropagationNeuralNetwork best = leaderboard.get(0).getNetwork();
+        System.out.println();
+        printPredictions(best, trainingData);
+        if (modelPath != null) {
+            best.save(modelPath);
+            System.out.println("Modle enregistr : " + modelPath);
+        }
+    }
+
+    // Afficher, pour chaque format quantifi, la mmoire des poids, le nombre
+    // de cas mal classs et le plus grand cart avec les sorties du modle
+    // float
+    private static void printQuantization(InferenceModel model, float[][] trainingData,
+            float[][] trainingResults) {
+        int floatErrors = 0;
+        for (int i = 0; i < trainingData.length; i++) {
+            if (trainingResults[i][argmax(model.predict(trainingData[i]))] != 1f) {
+                floatErrors++;
+            }
+        }
+        System.out.println("float : " + model.getWeightBytes() + " octets, " + floatErrors + " erreurs");
+        for (QuantizedModel.Format format : QuantizedModel.Format.values()) {
+            QuantizedModel quantized = model.quantize(format);
+            int errors = 0;
+            float maxDifference = 0;
+            for (int i = 0; i < trainingData.length; i++) {
+                float[] expected = model.predict(trainingData[i]);
+                float[] calculated = quantized.predict(trainingData[i]);
+                if (trainingResults[i][argmax(calculated)] != 1f) {
+                    errors++;
+                }
+                for (int k = 0; k < expected.length; k++) {
+                    maxDifference = Math.max(maxDifference, Math.abs(expected[k] - calculated[k]));
                 }
             }
+            System.out.println(format + " : " + quantized.getWeightBytes() + " octets, " + errors
+                    + " erreurs, cart maximal " + maxDifference);
+        }
+    }
+
+    // Index de la plus grande valeur
+    private static int argmax(float[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Afficher le rsultat arrondi du rseau pour chacun des cas
+    private static void printPredictions(BackpropagationNeuralNetwork backpropagationNeuralNetwork,
+            float[][] trainingData) {
+        for (int i = 0; i < trainingData.length; i++) {
+            float[] data = trainingData[i];
+            float[] calculatedOutput = backpropagationNeuralNetwork.run(data);
+            System.out.println(data[0] + ", " + data[1] + ", " + data[2] + ", " + data[3] + " --> "
+                    + Math.round(calculatedOutput[0]) + " - " + Math.round(calculatedOutput[1]) + " - "
+                    + Math.round(calculatedOutput[2]));
         }
     }
 }
\ No newline at end of file
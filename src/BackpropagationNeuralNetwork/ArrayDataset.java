@@ -0,0 +1,113 @@
+package BackpropagationNeuralNetwork;
+
+import java.util.SplittableRandom;
+
+/**
+ * Jeu de donnes dj en mmoire, sous forme d'un tableau par cas.
+ */
+public class ArrayDataset extends ChunkedDataset {
+    // Un cas en entre par ligne
+    private final float[][] inputs;
+    // Les valeurs attendues, une ligne par cas
+    private final float[][] targets;
+
+    /**
+     * Constructeur
+     *
+     * @param inputs
+     *            (float[][]), un cas en entre par ligne
+     * @param targets
+     *            (float[][]), les valeurs attendues, une ligne par cas
+     * @param chunkRows
+     *            (int), nombre de cas par bloc
+     */
+    public ArrayDataset(float[][] inputs, float[][] targets, int chunkRows) {
+        super(inputs[0].length, targets[0].length, chunkRows);
+        if (inputs.length != targets.length) {
+            throw new IllegalArgumentException(
+                    "inputs and targets have different lengths: " + inputs.length + " != " + targets.length);
+        }
+        this.inputs = inputs;
+        this.targets = targets;
+        // Copier un bloc en mmoire cote moins cher que de passer par un
+        // autre fil d'excution
+        prefetch(0);
+    }
+
+    /**
+     * Sparer les cas en deux jeux de donnes disjoints : un pour
+     * l'apprentissage et un de validation, pour mesurer le rseau sur des cas
+     * qu'il n'a jamais appris (voir EarlyStopping). Les cas sont tirs au
+     * hasard, sans copie des lignes; la sparation ne dpend que de la graine.
+     *
+     * @param validationFraction
+     *            (double), proportion des cas mis de ct pour la validation,
+     *            entre 0 et 1 exclus
+     * @param seed
+     *            (long), graine du tirage
+     * @return (ArrayDataset[]), le jeu d'apprentissage puis celui de
+     *         validation
+     */
+    public ArrayDataset[] split(double validationFraction, long seed) {
+        int validationRows = (int) Math.round(inputs.length * validationFraction);
+        if (validationRows <= 0 || validationRows >= inputs.length) {
+            throw new IllegalArgumentException("validationFraction leaves an empty dataset: " + validationFraction);
+        }
+        // Mlange de Fisher-Yates des index; les premiers vont  la validation
+        int[] order = new int[inputs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return new ArrayDataset[] { select(order, validationRows, order.length),
+                select(order, 0, validationRows) };
+    }
+
+    private ArrayDataset select(int[] order, int from, int to) {
+        float[][] selectedInputs = new float[to - from][];
+        float[][] selectedTargets = new float[to - from][];
+        for (int i = from; i < to; i++) {
+            selectedInputs[i - from] = inputs[order[i]];
+            selectedTargets[i - from] = targets[order[i]];
+        }
+        return new ArrayDataset(selectedInputs, selectedTargets, Math.min(getChunkRows(), to - from));
+    }
+
+    @Override
+    public long getRowCount() {
+        return inputs.length;
+    }
+
+    @Override
+    protected int getBlockCount() {
+        return (inputs.length + getChunkRows() - 1) / getChunkRows();
+    }
+
+    @Override
+    protected BlockSource openBlocks() {
+        return new BlockSource() {
+            @Override
+            public int read(int block, float[] inputMatrix, float[] targetMatrix) {
+                int inputSize = getInputSize();
+                int outputSize = getOutputSize();
+                int first = block * getChunkRows();
+                int rows = Math.min(getChunkRows(), inputs.length - first);
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(inputs[first + r], 0, inputMatrix, r * inputSize, inputSize);
+                    System.arraycopy(targets[first + r], 0, targetMatrix, r * outputSize, outputSize);
+                }
+                return rows;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
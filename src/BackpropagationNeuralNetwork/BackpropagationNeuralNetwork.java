@@ -1,5 +1,13 @@
 package BackpropagationNeuralNetwork;
 
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
 /**
  * Rseau de neurones avec rtropropagation. Apprentissage supervis utilis
  * pour la rsolution de problmes non-linaires. Ici, la fonction d'activation
@@ -26,11 +34,19 @@ public class BackpropagationNeuralNetwork {
     // Inertie, divergence qui permet de sortir des minimum locaux
     public static final float MOMENTUM = 0.6f;
     // Nombre d'itrations : epoch (Intressant de voir comment le systme
-    // s'ajuste avec 10, 100, 1000 priodes)
+    // s'ajuste avec 10, 100, 1000 priodes). Avec EarlyStopping, c'est le
+    // nombre maximal de priodes
     public static final int ITERATIONS = 10000;
     // Liste des connexions entre les neurones des diffrentes couches("edge
     // weights")
     private Layer[] layers;
+    // Activations et erreurs d'un cas, alloues une seule fois
+    private final Workspace workspace;
+    // Matrices de travail rutilises par runBatch et trainBatch, alloues
+    // par build() pour la taille de lot maximale dclare
+    private BatchWorkspace batchWorkspace;
+    // Mesures de l'apprentissage, null si elles sont dsactives
+    private TrainingMetrics metrics;
 
     /**
      * Constructeur du rseau de neurones
@@ -43,9 +59,87 @@ public class BackpropagationNeuralNetwork {
      *            (int), entier du nombre de neurones en sortie
      */
     public BackpropagationNeuralNetwork(int inputSize, int hiddenSize, int outputSize) {
-        layers = new Layer[2];
-        layers[0] = new Layer(inputSize, hiddenSize);
-        layers[1] = new Layer(hiddenSize, outputSize);
+        this(new Layer[] { new Layer(inputSize, hiddenSize), new Layer(hiddenSize, outputSize) });
+    }
+
+    /**
+     * Constructeur  partir de couches existantes
+     * 
+     * @param layers
+     *            (Layer[]), les couches de connexions, de l'entre vers la
+     *            sortie
+     */
+    BackpropagationNeuralNetwork(Layer[] layers) {
+        this(layers, 0);
+    }
+
+    /**
+     * Constructeur  partir de couches existantes, avec l'espace de travail
+     * des lots
+     * 
+     * @param layers
+     *            (Layer[]), les couches de connexions, de l'entre vers la
+     *            sortie
+     * @param maxBatchSize
+     *            (int), nombre maximal de cas par lot, 0 pour allouer
+     *            l'espace de travail des lots au premier lot
+     */
+    BackpropagationNeuralNetwork(Layer[] layers, int maxBatchSize) {
+        for (int i = 1; i < layers.length; i++) {
+            if (layers[i].getInputSize() != layers[i - 1].getOutputSize()) {
+                throw new IllegalArgumentException("Layer " + i + " expects " + layers[i].getInputSize()
+                        + " inputs but the previous layer has " + layers[i - 1].getOutputSize() + " outputs");
+            }
+        }
+        this.layers = layers;
+        this.workspace = new Workspace(layers);
+        if (maxBatchSize > 0) {
+            this.batchWorkspace = newBatchWorkspace(maxBatchSize);
+        }
+    }
+
+    /**
+     * Commencer la construction d'un rseau d'un nombre quelconque de couches
+     * caches, par exemple :
+     * 
+     * <pre>
+     * BackpropagationNeuralNetwork.builder(64).layer(128, Activations.RELU).layer(64, Activations.RELU)
+     *         .layer(10, Activations.SOFTMAX).build();
+     * </pre>
+     * 
+     * @param inputSize
+     *            (int), nombre de neurones en entre
+     * @return (Builder), le constructeur du rseau
+     */
+    public static Builder builder(int inputSize) {
+        return new Builder(inputSize);
+    }
+
+    /**
+     * Enregistrer les poids du rseau dans un fichier (voir ModelFile)
+     * 
+     * @param path
+     *            (Path), le fichier, remplac s'il existe dj
+     * @throws IOException
+     *             si le fichier ne peut tre crit
+     */
+    public void save(Path path) throws IOException {
+        ModelFile.save(this, path);
+    }
+
+    /**
+     * Charger un rseau enregistr avec save, pour continuer son
+     * apprentissage. Pour seulement classer des cas, InferenceModel.map vite
+     * de copier les poids.
+     * 
+     * @param path
+     *            (Path), le fichier de modle
+     * @return (BackpropagationNeuralNetwork), le rseau
+     * @throws IOException
+     *             si le fichier ne peut tre lu ou n'est pas un modle valide
+     */
+    public static BackpropagationNeuralNetwork load(Path path) throws IOException {
+        return ModelFile.load(path);
     }
 
     /**
@@ -59,6 +153,85 @@ public class BackpropagationNeuralNetwork {
         return layers[index];
     }
 
+    /**
+     * Obtenir le nombre de couches de connexions
+     * 
+     * @return (int), nombre de couches de connexions
+     */
+    public int getLayerCount() {
+        return layers.length;
+    }
+
+    /**
+     * Recommencer avec de nouveaux poids de dpart, les mmes pour une mme
+     * rgle et une mme graine. La graine de chaque couche est tire de
+     * seed, dans l'ordre des couches.
+     * 
+     * @param initializer
+     *            (WeightInitializer), rgle des poids de dpart, voir
+     *            WeightInitializers
+     * @param seed
+     *            (long), graine des poids de dpart
+     */
+    public void initWeights(WeightInitializer initializer, long seed) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (Layer layer : layers) {
+            layer.initWeights(initializer, seeds.nextLong());
+        }
+    }
+
+    /**
+     * Choisir la rgle de modification des poids de toutes les couches (voir
+     * Optimizers). MOMENTUM par dfaut. L'tat de l'optimiseur repart de
+     * zro.
+     * 
+     * @param optimizer
+     *            (Optimizer), l'optimiseur
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        for (Layer layer : layers) {
+            layer.setOptimizer(optimizer);
+        }
+        workspace.allocateGradients(layers);
+    }
+
+    /**
+     * @return (Optimizer), la rgle de modification des poids
+     */
+    public Optimizer getOptimizer() {
+        return layers[0].getOptimizer();
+    }
+
+    /**
+     * Attacher des mesures  l'apprentissage de ce rseau, prises  chaque
+     * priode de train(Dataset, ...) et de ParallelTrainer
+     * 
+     * @param metrics
+     *            (TrainingMetrics), les mesures, ou null pour les dsactiver
+     */
+    public void setMetrics(TrainingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return (TrainingMetrics), les mesures de l'apprentissage, ou null si
+     *         elles sont dsactives
+     */
+    public TrainingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Crer un espace de travail pour des lots de cas de ce rseau
+     * 
+     * @param capacity
+     *            (int), nombre maximal de cas par lot
+     * @return (BatchWorkspace), le nouvel espace de travail
+     */
+    BatchWorkspace newBatchWorkspace(int capacity) {
+        return new BatchWorkspace(layers, capacity);
+    }
+
     /**
      * Processus qui pousse l'activit neuronale de l'entre vers la sortie
      * 
@@ -68,13 +241,111 @@ public class BackpropagationNeuralNetwork {
      *         d'activation en sortie
      */
     public float[] run(float[] input) {
-        float[] activations = input;
+        int last = layers.length;
+        forward(workspace, input, 0);
+        return Arrays.copyOfRange(workspace.arena, workspace.activationOffsets[last],
+                workspace.activationOffsets[last] + layers[last - 1].getOutputSize());
+    }
+
+    /**
+     * Processus qui pousse l'activit neuronale de l'entre vers la sortie,
+     * sans allocation
+     * 
+     * @param input
+     *            (float[]), une liste de valeur en entre
+     * @param output
+     *            (float[]), reoit les valeurs rsultantes d'activation en
+     *            sortie
+     */
+    public void run(float[] input, float[] output) {
+        int last = layers.length;
+        forward(workspace, input, 0);
+        System.arraycopy(workspace.arena, workspace.activationOffsets[last], output, 0,
+                layers[last - 1].getOutputSize());
+    }
+
+    private void forward(Workspace workspace, float[] inputs, int inputOffset) {
+        float[] arena = workspace.arena;
+        int[] activationOffsets = workspace.activationOffsets;
+        System.arraycopy(inputs, inputOffset, arena, activationOffsets[0], layers[0].getInputSize());
+        for (int i = 0; i < layers.length; i++) {
+            layers[i].forward(arena, activationOffsets[i], activationOffsets[i + 1]);
+        }
+    }
+
+    /**
+     * Figer les poids actuels dans un modle d'infrence indpendant, qui peut
+     * tre utilis par plusieurs fils d'excution en mme temps, sans verrou,
+     * mme si l'apprentissage de ce rseau continue.
+     * 
+     * @return (InferenceModel), le modle fig
+     */
+    public InferenceModel freeze() {
+        float[][] weights = new float[layers.length][];
+        for (int i = 0; i < layers.length; i++) {
+            weights[i] = layers[i].getWeights();
+        }
+        return new InferenceModel(sizes(), weights, activations());
+    }
+
+    /**
+     * Modle d'infrence qui lit directement les poids de ce rseau, sans les
+     * copier. Contrairement  freeze, il suit l'apprentissage : il ne doit
+     * servir qu'entre deux modifications des poids, sur le fil d'excution de
+     * l'apprentissage, par exemple pour une validation.
+     * 
+     * @return (InferenceModel), le modle qui partage les poids du rseau
+     */
+    InferenceModel view() {
+        FloatBuffer[] weights = new FloatBuffer[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            weights[i] = FloatBuffer.wrap(layers[i].getWeights());
+        }
+        return new InferenceModel(sizes(), weights, activations());
+    }
+
+    // Nombre de neurones de chaque niveau : entre, couches caches, sortie
+    private int[] sizes() {
+        int[] sizes = new int[layers.length + 1];
+        sizes[0] = layers[0].getInputSize();
+        for (int i = 0; i < layers.length; i++) {
+            sizes[i + 1] = layers[i].getOutputSize();
+        }
+        return sizes;
+    }
+
+    // Fonction d'activation de chaque couche
+    private Activation[] activations() {
+        Activation[] activations = new Activation[layers.length];
         for (int i = 0; i < layers.length; i++) {
-            activations = layers[i].run(activations);
+            activations[i] = layers[i].getActivation();
         }
         return activations;
     }
 
+    /**
+     * Remettre dans le rseau les poids d'un modle fig, par exemple le
+     * meilleur modle gard par EarlyStopping. L'tat de l'optimiseur repart
+     * de zro.
+     * 
+     * @param model
+     *            (InferenceModel), modle fig de mme topologie
+     */
+    public void restore(InferenceModel model) {
+        int[] sizes = model.getSizes();
+        if (sizes.length != layers.length + 1 || sizes[0] != layers[0].getInputSize()) {
+            throw new IllegalArgumentException("model topology does not match the network");
+        }
+        for (int i = 0; i < layers.length; i++) {
+            if (sizes[i + 1] != layers[i].getOutputSize() || model.getActivation(i) != layers[i].getActivation()) {
+                throw new IllegalArgumentException("model topology does not match the network");
+            }
+        }
+        for (int i = 0; i < layers.length; i++) {
+            layers[i].setWeights(model.getWeights(i));
+        }
+    }
+
     /**
      * Processus d'apprentissage avec rtropropagation qui repousse l'activit
      * neuronale de la sortie vers l'entre afin d'adapter les connexions.
@@ -90,18 +361,322 @@ public class BackpropagationNeuralNetwork {
      *            (float), inertie qui sert  sortir des minimums locaux
      */
     public void train(float[] input, float[] targetOutput, float learningRate, float momentum) {
-        // Liste des rsultats des calculs dans le rseau actuel
-        float[] calculatedOutput = run(input);
-        // Liste des erreurs pour chacune des donnes d'entrainement
-        float[] error = new float[calculatedOutput.length];
-        // Calculer les erreurs
-        for (int i = 0; i < error.length; i++) {
-            error[i] = targetOutput[i] - calculatedOutput[i];
+        train(workspace, input, 0, targetOutput, 0, learningRate, momentum);
+    }
+
+    /**
+     * Apprentissage d'un cas avec un espace de travail fourni par l'appelant.
+     * Plusieurs fils d'excution peuvent l'appeler en mme temps, chacun avec
+     * son propre espace de travail : ils modifient alors les mmes poids sans
+     * verrou (voir HogwildTrainer).
+     * 
+     * @param workspace
+     *            (Workspace), espace de travail cr par newWorkspace()
+     * @param inputs
+     *            (float[]), valeurs en entre
+     * @param inputOffset
+     *            (int), dbut du cas dans inputs
+     * @param targetOutputs
+     *            (float[]), valeurs attendues
+     * @param targetOffset
+     *            (int), dbut des valeurs attendues dans targetOutputs
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    void train(Workspace workspace, float[] inputs, int inputOffset, float[] targetOutputs, int targetOffset,
+            float learningRate, float momentum) {
+        // Calculer les valeurs de toutes les couches du rseau actuel
+        forward(workspace, inputs, inputOffset);
+        float[] arena = workspace.arena;
+        int[] activationOffsets = workspace.activationOffsets;
+        int[] errorOffsets = workspace.errorOffsets;
+        int last = layers.length;
+        // Calculer les erreurs pour chacune des valeurs attendues
+        int outputOffset = activationOffsets[last];
+        int errorOffset = errorOffsets[last];
+        for (int i = 0; i < layers[last - 1].getOutputSize(); i++) {
+            arena[errorOffset + i] = targetOutputs[targetOffset + i] - arena[outputOffset + i];
         }
         // rtropropagation ("backpropagation"), obtenir les erreurs des valeurs
         // calcules
+        for (int i = last - 1; i >= 0; i--) {
+            layers[i].backward(arena, activationOffsets[i], activationOffsets[i + 1], errorOffsets[i + 1],
+                    errorOffsets[i], workspace.gradients(layers[i], i), learningRate, momentum);
+        }
+    }
+
+    /**
+     * Crer un espace de travail pour l'apprentissage cas par cas
+     * 
+     * @return (Workspace), le nouvel espace de travail
+     */
+    Workspace newWorkspace() {
+        return new Workspace(layers);
+    }
+
+    /**
+     * Processus qui pousse l'activit neuronale de tout un lot de cas de
+     * l'entre vers la sortie.
+     * 
+     * @param inputs
+     *            (float[][]), un cas en entre par ligne
+     * @return outputs (float[][]), les valeurs rsultantes d'activation en
+     *         sortie, une ligne par cas
+     */
+    public float[][] runBatch(float[][] inputs) {
+        int rows = inputs.length;
+        BatchWorkspace workspace = batchWorkspace(rows);
+        pack(inputs, layers[0].getInputSize(), workspace.inputs);
+        float[] calculatedOutputs = forwardBatch(workspace, workspace.inputs, rows);
+        int outputSize = layers[layers.length - 1].getOutputSize();
+        float[][] outputs = new float[rows][];
+        for (int r = 0; r < rows; r++) {
+            outputs[r] = Arrays.copyOfRange(calculatedOutputs, r * outputSize, (r + 1) * outputSize);
+        }
+        return outputs;
+    }
+
+    /**
+     * Processus qui pousse l'activit neuronale de tout un lot de cas de
+     * l'entre vers la sortie, sans allocation.
+     * 
+     * @param inputs
+     *            (float[]), matrice des cas en entre [rows x inputSize]
+     * @param rows
+     *            (int), nombre de cas dans le lot
+     * @param outputs
+     *            (float[]), matrice des valeurs rsultantes [rows x
+     *            outputSize]
+     */
+    public void runBatch(float[] inputs, int rows, float[] outputs) {
+        float[] calculatedOutputs = forwardBatch(batchWorkspace(rows), inputs, rows);
+        System.arraycopy(calculatedOutputs, 0, outputs, 0, rows * layers[layers.length - 1].getOutputSize());
+    }
+
+    /**
+     * Apprentissage par lot : les poids sont modifis une seule fois, avec la
+     * moyenne des gradients de tous les cas du lot.
+     * 
+     * @param inputs
+     *            (float[][]), un cas en entre par ligne
+     * @param targetOutputs
+     *            (float[][]), les valeurs attendues, une ligne par cas
+     * @param learningRate
+     *            (float), taux d'apprentissage, appliqu  la moyenne des
+     *            gradients du lot : le pas ne dpend pas de la taille du lot
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    public void trainBatch(float[][] inputs, float[][] targetOutputs, float learningRate, float momentum) {
+        int rows = inputs.length;
+        BatchWorkspace workspace = batchWorkspace(rows);
+        pack(inputs, layers[0].getInputSize(), workspace.inputs);
+        pack(targetOutputs, layers[layers.length - 1].getOutputSize(), workspace.targets);
+        trainBatch(workspace, workspace.inputs, workspace.targets, rows, learningRate, momentum);
+    }
+
+    /**
+     * Apprentissage par lot sans allocation : les poids sont modifis une
+     * seule fois, avec la moyenne des gradients de tous les cas du lot.
+     * 
+     * @param inputs
+     *            (float[]), matrice des cas en entre [rows x inputSize]
+     * @param targetOutputs
+     *            (float[]), matrice des valeurs attendues [rows x outputSize]
+     * @param rows
+     *            (int), nombre de cas dans le lot
+     * @param learningRate
+     *            (float), taux d'apprentissage, appliqu  la moyenne des
+     *            gradients du lot : le pas ne dpend pas de la taille du lot
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    public void trainBatch(float[] inputs, float[] targetOutputs, int rows, float learningRate, float momentum) {
+        trainBatch(batchWorkspace(rows), inputs, targetOutputs, rows, learningRate, momentum);
+    }
+
+    /**
+     * Une priode d'apprentissage sur tout un jeu de donnes, lu morceau par
+     * morceau. Les cas de chaque morceau sont appris par lots de batchSize.
+     * 
+     * @param dataset
+     *            (Dataset), le jeu de donnes
+     * @param epoch
+     *            (long), numro de la priode, qui dtermine l'ordre des cas
+     *            d'un jeu de donnes mlang
+     * @param batchSize
+     *            (int), nombre de cas dont les gradients sont moyenns avant
+     *            chaque modification des poids; 1 pour modifier les poids
+     *            aprs chaque cas
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    public void train(Dataset dataset, long epoch, int batchSize, float learningRate, float momentum)
+            throws IOException {
+        int inputSize = dataset.getInputSize();
+        int outputSize = dataset.getOutputSize();
+        BatchWorkspace workspace = batchWorkspace(batchSize);
+        TrainingMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.beginEpoch(epoch, workspace);
+        }
+        try (DataReader reader = dataset.open(epoch)) {
+            DataChunk chunk;
+            while ((chunk = reader.next()) != null) {
+                for (int first = 0; first < chunk.getRows(); first += batchSize) {
+                    int rows = Math.min(batchSize, chunk.getRows() - first);
+                    System.arraycopy(chunk.getInputs(), first * inputSize, workspace.inputs, 0, rows * inputSize);
+                    System.arraycopy(chunk.getTargets(), first * outputSize, workspace.targets, 0,
+                            rows * outputSize);
+                    computeGradients(workspace, workspace.inputs, workspace.targets, rows);
+                    if (metrics == null) {
+                        applyGradients(workspace, learningRate, momentum);
+                    } else {
+                        metrics.applyGradients(this, workspace, learningRate, momentum);
+                    }
+                }
+            }
+        } finally {
+            workspace.measure = false;
+        }
+        if (metrics != null) {
+            metrics.endEpoch(this);
+        }
+    }
+
+    private void trainBatch(BatchWorkspace workspace, float[] inputs, float[] targetOutputs, int rows,
+            float learningRate, float momentum) {
+        computeGradients(workspace, inputs, targetOutputs, rows);
+        applyGradients(workspace, learningRate, momentum);
+    }
+
+    /**
+     * Propager un lot vers l'avant puis vers l'arrire et additionner ses
+     * gradients dans l'espace de travail, sans modifier les poids. Plusieurs
+     * fils d'excution peuvent l'appeler en mme temps, chacun avec son propre
+     * espace de travail.
+     * 
+     * @param workspace
+     *            (BatchWorkspace), espace de travail qui reoit les gradients
+     * @param inputs
+     *            (float[]), matrice des cas en entre [rows x inputSize]
+     * @param targetOutputs
+     *            (float[]), matrice des valeurs attendues [rows x outputSize]
+     * @param rows
+     *            (int), nombre de cas dans le lot
+     */
+    void computeGradients(BatchWorkspace workspace, float[] inputs, float[] targetOutputs, int rows) {
+        boolean measure = workspace.measure;
+        long started = measure ? System.nanoTime() : 0;
+        float[] calculatedOutputs = forwardBatch(workspace, inputs, rows);
+        // Calculer les erreurs de la dernire couche
+        float[] errors = workspace.errors[layers.length - 1];
+        int length = rows * layers[layers.length - 1].getOutputSize();
+        for (int i = 0; i < length; i++) {
+            errors[i] = targetOutputs[i] - calculatedOutputs[i];
+        }
+        if (measure) {
+            long forwardEnd = System.nanoTime();
+            workspace.forwardNanos += forwardEnd - started;
+            workspace.lossSum += loss(layers[layers.length - 1].getActivation(), calculatedOutputs, 0,
+                    targetOutputs, 0, length);
+            workspace.samples += rows;
+            started = forwardEnd;
+        }
+        // Rtropropagation de toutes les couches avant de toucher aux poids
+        workspace.rows = rows;
         for (int i = layers.length - 1; i >= 0; i--) {
-            error = layers[i].train(error, learningRate, momentum);
+            Arrays.fill(workspace.gradients[i], 0f);
+            layers[i].backwardBatch(i == 0 ? inputs : workspace.outputs[i - 1], workspace.outputs[i],
+                    workspace.errors[i], rows, workspace.gradients[i], i == 0 ? null : workspace.errors[i - 1]);
+        }
+        if (measure) {
+            workspace.backwardNanos += System.nanoTime() - started;
+        }
+    }
+
+    /**
+     * Somme des pertes de cas conscutifs : entropie croise avec SOFTMAX en
+     * sortie, sinon la moiti de la somme des carrs des erreurs
+     * 
+     * @param outputActivation
+     *            (Activation), fonction d'activation de la couche de sortie
+     * @param calculatedOutputs
+     *            (float[]), valeurs calcules
+     * @param calculatedOffset
+     *            (int), dbut des valeurs calcules
+     * @param targetOutputs
+     *            (float[]), valeurs attendues
+     * @param targetOffset
+     *            (int), dbut des valeurs attendues
+     * @param length
+     *            (int), nombre de valeurs
+     * @return (double), la somme des pertes
+     */
+    static double loss(Activation outputActivation, float[] calculatedOutputs, int calculatedOffset,
+            float[] targetOutputs, int targetOffset, int length) {
+        double sum = 0;
+        if (outputActivation == Activations.SOFTMAX) {
+            for (int i = 0; i < length; i++) {
+                float target = targetOutputs[targetOffset + i];
+                if (target != 0) {
+                    sum -= target * Math.log(Math.max(calculatedOutputs[calculatedOffset + i], Float.MIN_NORMAL));
+                }
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                float error = targetOutputs[targetOffset + i] - calculatedOutputs[calculatedOffset + i];
+                sum += error * error;
+            }
+            sum /= 2;
+        }
+        return sum;
+    }
+
+    /**
+     * Modifier les poids de toutes les couches avec la moyenne des gradients
+     * accumuls dans l'espace de travail.
+     * 
+     * @param workspace
+     *            (BatchWorkspace), espace de travail contenant les gradients
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    void applyGradients(BatchWorkspace workspace, float learningRate, float momentum) {
+        for (int i = 0; i < layers.length; i++) {
+            layers[i].applyGradients(workspace.gradients[i], workspace.rows, learningRate, momentum);
+        }
+    }
+
+    private float[] forwardBatch(BatchWorkspace workspace, float[] inputs, int rows) {
+        float[] activations = inputs;
+        for (int i = 0; i < layers.length; i++) {
+            layers[i].runBatch(activations, rows, workspace.outputs[i], workspace.transposedWeights[i]);
+            activations = workspace.outputs[i];
+        }
+        return activations;
+    }
+
+    // L'espace de travail des lots, remplac seulement par un lot plus grand
+    // que la taille maximale dclare
+    private BatchWorkspace batchWorkspace(int rows) {
+        if (batchWorkspace == null || batchWorkspace.capacity < rows) {
+            batchWorkspace = newBatchWorkspace(rows);
+        }
+        return batchWorkspace;
+    }
+
+    private static void pack(float[][] rows, int columns, float[] matrix) {
+        for (int r = 0; r < rows.length; r++) {
+            System.arraycopy(rows[r], 0, matrix, r * columns, columns);
         }
     }
 
@@ -130,4 +705,154 @@ public class BackpropagationNeuralNetwork {
         // en partie termin, nous la calculons ainsi :
         return x * (1 - x);
     }
+
+    /**
+     * Construction d'un rseau d'un nombre quelconque de couches
+     */
+    public static final class Builder {
+        // Nombre de neurones de chaque niveau,  partir de l'entre
+        private final List<Integer> sizes = new ArrayList<>();
+        // Fonction d'activation de chaque couche
+        private final List<Activation> activations = new ArrayList<>();
+        // Rgle de modification des poids
+        private Optimizer optimizer = Optimizers.MOMENTUM;
+        // Rgle des poids de dpart
+        private WeightInitializer initializer = WeightInitializers.UNIFORM;
+        // Graine des poids de dpart, tire au hasard par dfaut
+        private long seed = WeightInitializers.randomSeed();
+        // Nombre maximal de cas par lot, 0 si aucun n'est dclar
+        private int maxBatchSize;
+
+        private Builder(int inputSize) {
+            sizes.add(checkSize(inputSize));
+        }
+
+        /**
+         * Ajouter une couche de neurones sigmoides, cache ou de sortie pour
+         * la dernire
+         * 
+         * @param size
+         *            (int), nombre de neurones de la couche
+         * @return (Builder), ce constructeur
+         */
+        public Builder layer(int size) {
+            return layer(size, Activations.SIGMOID);
+        }
+
+        /**
+         * Ajouter une couche de neurones, cache ou de sortie pour la
+         * dernire
+         * 
+         * @param size
+         *            (int), nombre de neurones de la couche
+         * @param activation
+         *            (Activation), fonction d'activation de la couche
+         * @return (Builder), ce constructeur
+         */
+        public Builder layer(int size, Activation activation) {
+            if (activation == null) {
+                throw new IllegalArgumentException("activation must not be null");
+            }
+            sizes.add(checkSize(size));
+            activations.add(activation);
+            return this;
+        }
+
+        /**
+         * Choisir la rgle de modification des poids, MOMENTUM par dfaut
+         * 
+         * @param optimizer
+         *            (Optimizer), l'optimiseur, voir Optimizers
+         * @return (Builder), ce constructeur
+         */
+        public Builder optimizer(Optimizer optimizer) {
+            if (optimizer == null) {
+                throw new IllegalArgumentException("optimizer must not be null");
+            }
+            this.optimizer = optimizer;
+            return this;
+        }
+
+        /**
+         * Choisir la rgle des poids de dpart, UNIFORM par dfaut. XAVIER
+         * convient aux couches SIGMOID, TANH et SOFTMAX larges, HE aux
+         * couches RELU.
+         * 
+         * @param initializer
+         *            (WeightInitializer), la rgle, voir WeightInitializers
+         * @return (Builder), ce constructeur
+         */
+        public Builder initializer(WeightInitializer initializer) {
+            if (initializer == null) {
+                throw new IllegalArgumentException("initializer must not be null");
+            }
+            this.initializer = initializer;
+            return this;
+        }
+
+        /**
+         * Fixer la graine des poids de dpart : deux rseaux construits avec
+         * la mme graine et la mme rgle ont les mmes poids
+         * 
+         * @param seed
+         *            (long), la graine
+         * @return (Builder), ce constructeur
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Dclarer le nombre maximal de cas par lot de runBatch, trainBatch et
+         * train(Dataset, ...) : build() alloue alors aussi les matrices de
+         * travail des lots, et l'apprentissage par lots n'alloue plus rien.
+         * Sans dclaration, elles sont alloues au premier lot. Un lot plus
+         * grand reste accept, mais remplace les matrices.
+         * 
+         * @param maxBatchSize
+         *            (int), nombre maximal de cas par lot
+         * @return (Builder), ce constructeur
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Crer le rseau et tous ses espaces de travail : celui d'un cas, et
+         * celui des lots si maxBatchSize est dclar
+         * 
+         * @return (BackpropagationNeuralNetwork), le nouveau rseau
+         */
+        public BackpropagationNeuralNetwork build() {
+            if (sizes.size() < 2) {
+                throw new IllegalStateException("A network needs at least one layer after its input");
+            }
+            Layer[] layers = new Layer[sizes.size() - 1];
+            // Mmes graines par couche que initWeights(initializer, seed)
+            SplittableRandom seeds = new SplittableRandom(seed);
+            for (int i = 0; i < layers.length; i++) {
+                if (activations.get(i) == Activations.SOFTMAX && i != layers.length - 1) {
+                    throw new IllegalStateException("SOFTMAX can only be used by the output layer");
+                }
+                layers[i] = new Layer(sizes.get(i), sizes.get(i + 1), activations.get(i), initializer,
+                        seeds.nextLong());
+                if (optimizer != Optimizers.MOMENTUM) {
+                    layers[i].setOptimizer(optimizer);
+                }
+            }
+            return new BackpropagationNeuralNetwork(layers, maxBatchSize);
+        }
+
+        private static int checkSize(int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("A layer needs at least one neuron: " + size);
+            }
+            return size;
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Espace de travail d'un lot : toutes les matrices intermdiaires (activations,
+ * erreurs, gradients) ncessaires pour faire passer un lot complet de cas dans
+ * le rseau. Les matrices sont alloues une seule fois pour un nombre maximal
+ * de lignes et rutilises d'un lot  l'autre : par build() pour la taille
+ * dclare par Builder.maxBatchSize, sinon au premier lot.
+ */
+final class BatchWorkspace {
+    // Nombre maximal de cas par lot
+    final int capacity;
+    // Cas en entre regroups en une seule matrice [capacity x inputSize]
+    final float[] inputs;
+    // Rsultats attendus regroups en une seule matrice [capacity x outputSize]
+    final float[] targets;
+    // Sorties de chaque couche [capacity x outputSize de la couche]
+    final float[][] outputs;
+    // Erreurs sur les sorties de chaque couche, deviennent les deltas
+    final float[][] errors;
+    // Somme des gradients du lot pour chaque couche [(1 + inputSize) x
+    // outputSize], divise par rows au moment de modifier les poids
+    final float[][] gradients;
+    // Nombre de cas dont les gradients sont dans gradients
+    int rows;
+    // Poids de chaque couche transposs, sans le biais [inputSize x
+    // outputSize]
+    final float[][] transposedWeights;
+    // Mesurer la perte et les temps de calcul (voir TrainingMetrics)
+    boolean measure;
+    // Nombre de cas calculs depuis le dbut de la mesure
+    long samples;
+    // Somme des pertes de ces cas
+    double lossSum;
+    // Temps de propagation vers l'avant
+    long forwardNanos;
+    // Temps de rtropropagation
+    long backwardNanos;
+
+    /**
+     * Constructeur
+     *
+     * @param layers
+     *            (Layer[]), les couches du rseau
+     * @param capacity
+     *            (int), nombre maximal de cas par lot
+     */
+    BatchWorkspace(Layer[] layers, int capacity) {
+        this.capacity = capacity;
+        Layer first = layers[0];
+        Layer last = layers[layers.length - 1];
+        inputs = new float[capacity * first.getInputSize()];
+        targets = new float[capacity * last.getOutputSize()];
+        outputs = new float[layers.length][];
+        errors = new float[layers.length][];
+        gradients = new float[layers.length][];
+        transposedWeights = new float[layers.length][];
+        for (int i = 0; i < layers.length; i++) {
+            Layer layer = layers[i];
+            outputs[i] = new float[capacity * layer.getOutputSize()];
+            errors[i] = new float[capacity * layer.getOutputSize()];
+            gradients[i] = new float[layer.getWeightCount()];
+            transposedWeights[i] = new float[layer.getInputSize() * layer.getOutputSize()];
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Jeu de donnes binaire : une suite de cas de taille fixe, chacun form de
+ * inputSize puis outputSize floats de 4 octets en petit-boutiste
+ * ("little-endian"), sans en-tte.
+ *
+ * Chaque bloc est lu d'un seul appel systme dans un tampon direct rutilis,
+ * puis copi dans les matrices du morceau.
+ */
+public class BinaryDataset extends ChunkedDataset {
+    // Le fichier de donnes
+    private final Path path;
+    // Nombre de cas dans le fichier
+    private final long rowCount;
+
+    /**
+     * Constructeur
+     *
+     * @param path
+     *            (Path), le fichier de donnes
+     * @param inputSize
+     *            (int), nombre de valeurs en entre par cas
+     * @param outputSize
+     *            (int), nombre de valeurs attendues par cas
+     * @param chunkRows
+     *            (int), nombre de cas par bloc
+     * @throws IOException
+     *             si la taille du fichier n'est pas un multiple de la taille
+     *             d'un cas
+     * @throws IllegalArgumentException
+     *             si un bloc dpasse 2 Go, la taille maximale de son tampon
+     */
+    public BinaryDataset(Path path, int inputSize, int outputSize, int chunkRows) throws IOException {
+        super(inputSize, outputSize, chunkRows);
+        long rowBytes = ((long) inputSize + outputSize) * Float.BYTES;
+        if (chunkRows * rowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk too large: " + chunkRows + " rows of " + rowBytes + " bytes");
+        }
+        this.path = path;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+        }
+        if (size % rowBytes != 0) {
+            throw new IOException("File size " + size + " is not a multiple of the row size " + rowBytes + ": "
+                    + path);
+        }
+        this.rowCount = size / rowBytes;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    protected int getBlockCount() {
+        return (int) ((rowCount + getChunkRows() - 1) / getChunkRows());
+    }
+
+    @Override
+    protected BlockSource openBlocks() throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        final int inputSize = getInputSize();
+        final int outputSize = getOutputSize();
+        final int rowBytes = (inputSize + outputSize) * Float.BYTES;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(getChunkRows() * rowBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return new BlockSource() {
+            @Override
+            public int read(int block, float[] inputs, float[] targets) throws IOException {
+                long first = (long) block * getChunkRows();
+                int rows = (int) Math.min(getChunkRows(), rowCount - first);
+                buffer.clear();
+                buffer.limit(rows * rowBytes);
+                long position = first * rowBytes;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of file: " + path);
+                    }
+                }
+                buffer.flip();
+                FloatBuffer floats = buffer.asFloatBuffer();
+                for (int r = 0; r < rows; r++) {
+                    floats.get(inputs, r * inputSize, inputSize);
+                    floats.get(targets, r * outputSize, outputSize);
+                }
+                return rows;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
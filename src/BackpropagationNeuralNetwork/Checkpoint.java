@@ -0,0 +1,412 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Point de reprise d'un apprentissage, crit par Checkpointer : tout ce qu'il
+ * faut pour continuer l'apprentissage exactement comme s'il n'avait jamais
+ * t interrompu.
+ *
+ * L'ordre des cas d'une priode ne dpend que de la graine du jeu de donnes
+ * et du numro de la priode (voir Dataset.open) : la priode suivante et les
+ * graines remplacent l'tat des gnrateurs alatoires.
+ *
+ * Tout est crit en petit-boutiste ("little-endian") :
+ *
+ * <pre>
+ * int      magie "BPCK"
+ * int      version du format
+ * long     priode suivante, la premire  apprendre  la reprise
+ * int      S, nombre de graines
+ * long[S]  graines (jeux de donnes, mlange...)
+ * int      L, nombre de couches
+ * int[L+1] nombre de neurones de chaque niveau, de l'entre vers la sortie
+ * int[L]   fonction d'activation de chaque couche (voir Activations.getId),
+ *          -1 pour une fonction qui n'est pas dans Activations
+ * int      N, longueur du nom de l'optimiseur
+ * byte[N]  nom de l'optimiseur (Optimizer.toString) en UTF-8
+ * int      M, nombre de tableaux d'tat de l'optimiseur par couche
+ * long[L]  nombre de modifications des poids de chaque couche
+ * float[]  poids de chaque couche, [(1 + entres) x sorties], biais en dernier
+ * float[]  tat de l'optimiseur de chaque couche, M tableaux de la taille des
+ *          poids
+ * int      1 s'il y a un meilleur modle (EarlyStopping), sinon 0
+ * long     priode du meilleur modle
+ * double   perte de validation du meilleur modle
+ * double   perte de la dernire validation
+ * float[]  poids du meilleur modle de chaque couche, s'il y en a un
+ * int      somme de contrle CRC32 de tout ce qui prcde
+ * </pre>
+ *
+ * Le rseau pass  restore doit tre construit comme celui de
+ * l'apprentissage : mme topologie, mmes fonctions d'activation et mme
+ * optimiseur, reconnu  son nom. Un optimiseur maison doit donc redfinir
+ * toString avec ses paramtres.
+ */
+public final class Checkpoint {
+    // "BPCK" lu en petit-boutiste
+    static final int MAGIC = 'B' | 'P' << 8 | 'C' << 16 | 'K' << 24;
+    // Version actuelle du format
+    static final int VERSION = 1;
+
+    // Priode suivante
+    private final long epoch;
+    // Graines de l'apprentissage
+    private final long[] seeds;
+    // Nombre de neurones de chaque niveau
+    private final int[] sizes;
+    // Identifiant de la fonction d'activation de chaque couche
+    private final int[] activationIds;
+    // Nom de l'optimiseur
+    private final String optimizer;
+    // Nombre de modifications des poids de chaque couche
+    private final long[] steps;
+    // Poids de chaque couche
+    private final float[][] weights;
+    // tat de l'optimiseur de chaque couche
+    private final float[][][] optimizerState;
+    // Poids du meilleur modle de chaque couche, null s'il n'y en a pas
+    private final float[][] bestWeights;
+    // Priode du meilleur modle
+    private final long bestEpoch;
+    // Perte de validation du meilleur modle
+    private final double bestLoss;
+    // Perte de la dernire validation
+    private final double lastLoss;
+
+    private Checkpoint(long epoch, long[] seeds, int[] sizes, int[] activationIds, String optimizer, long[] steps,
+            float[][] weights, float[][][] optimizerState, float[][] bestWeights, long bestEpoch, double bestLoss,
+            double lastLoss) {
+        this.epoch = epoch;
+        this.seeds = seeds;
+        this.sizes = sizes;
+        this.activationIds = activationIds;
+        this.optimizer = optimizer;
+        this.steps = steps;
+        this.weights = weights;
+        this.optimizerState = optimizerState;
+        this.bestWeights = bestWeights;
+        this.bestEpoch = bestEpoch;
+        this.bestLoss = bestLoss;
+        this.lastLoss = lastLoss;
+    }
+
+    /**
+     * Lire un point de reprise
+     *
+     * @param path
+     *            (Path), le fichier crit par Checkpointer
+     * @return (Checkpoint), le point de reprise
+     * @throws IOException
+     *             si le fichier ne peut tre lu ou n'est pas un point de
+     *             reprise valide
+     */
+    public static Checkpoint read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 3 * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a checkpoint file: " + path);
+        }
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint file version " + version + ": " + path);
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.limit(buffer.limit() - Integer.BYTES);
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+        if ((int) checksum.getValue() != buffer.getInt(buffer.limit() - Integer.BYTES)) {
+            throw new IOException("Checkpoint file checksum mismatch: " + path);
+        }
+        buffer.limit(buffer.limit() - Integer.BYTES);
+        buffer.position(2 * Integer.BYTES);
+        try {
+            long epoch = buffer.getLong();
+            // Chaque nombre d'lments est compar aux octets restants avant
+            // d'allouer quoi que ce soit
+            long[] seeds = new long[count(buffer, Long.BYTES, path)];
+            for (int i = 0; i < seeds.length; i++) {
+                seeds[i] = buffer.getLong();
+            }
+            int layerCount = count(buffer, 2 * Integer.BYTES, path);
+            if (layerCount < 1) {
+                throw new IOException("Corrupted checkpoint file: " + path);
+            }
+            int[] sizes = new int[layerCount + 1];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = buffer.getInt();
+                if (sizes[i] < 1) {
+                    throw new IOException("Corrupted checkpoint file: " + path);
+                }
+            }
+            int[] activationIds = new int[layerCount];
+            for (int i = 0; i < layerCount; i++) {
+                activationIds[i] = buffer.getInt();
+            }
+            byte[] name = new byte[count(buffer, 1, path)];
+            buffer.get(name);
+            String optimizer = new String(name, StandardCharsets.UTF_8);
+            int stateCount = count(buffer, Float.BYTES, path);
+            long weightCount = 0;
+            for (int i = 0; i < layerCount; i++) {
+                weightCount += (1L + sizes[i]) * sizes[i + 1];
+                if (weightCount > buffer.remaining() / Float.BYTES) {
+                    throw new IOException("Truncated checkpoint file: " + path);
+                }
+            }
+            if ((1L + stateCount) * weightCount > buffer.remaining() / Float.BYTES) {
+                throw new IOException("Truncated checkpoint file: " + path);
+            }
+            long[] steps = new long[layerCount];
+            for (int i = 0; i < layerCount; i++) {
+                steps[i] = buffer.getLong();
+            }
+            float[][] weights = readWeights(buffer, sizes);
+            float[][][] optimizerState = new float[layerCount][stateCount][];
+            for (int i = 0; i < layerCount; i++) {
+                for (int s = 0; s < stateCount; s++) {
+                    optimizerState[i][s] = readFloats(buffer, weights[i].length);
+                }
+            }
+            boolean hasBest = buffer.getInt() != 0;
+            long bestEpoch = buffer.getLong();
+            double bestLoss = buffer.getDouble();
+            double lastLoss = buffer.getDouble();
+            float[][] bestWeights = hasBest ? readWeights(buffer, sizes) : null;
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupted checkpoint file: " + path);
+            }
+            return new Checkpoint(epoch, seeds, sizes, activationIds, optimizer, steps, weights, optimizerState,
+                    bestWeights, bestEpoch, bestLoss, lastLoss);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated checkpoint file: " + path, e);
+        }
+    }
+
+    // Lire un nombre d'lments qui doivent tenir dans les octets restants
+    private static int count(ByteBuffer buffer, int elementBytes, Path path) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / elementBytes) {
+            throw new IOException("Corrupted checkpoint file: " + path);
+        }
+        return count;
+    }
+
+    private static float[][] readWeights(ByteBuffer buffer, int[] sizes) {
+        float[][] weights = new float[sizes.length - 1][];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = readFloats(buffer, (1 + sizes[i]) * sizes[i + 1]);
+        }
+        return weights;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * Float.BYTES);
+        return values;
+    }
+
+    /**
+     * Taille maximale d'un point de reprise, meilleur modle et somme de
+     * contrle compris
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param seedCount
+     *            (int), nombre de graines
+     * @return (long), nombre d'octets
+     */
+    static long size(BackpropagationNeuralNetwork network, int seedCount) {
+        int layerCount = network.getLayerCount();
+        long weightCount = 0;
+        for (int i = 0; i < layerCount; i++) {
+            weightCount += network.getLayer(i).getWeightCount();
+        }
+        int stateCount = network.getLayer(0).getOptimizerState().length;
+        int nameLength = optimizerName(network).length;
+        // magie, version, priode, graines, L, tailles, activations, nom de
+        // l'optimiseur, M, modifications
+        long header = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES + (long) seedCount * Long.BYTES
+                + Integer.BYTES + (layerCount + 1L) * Integer.BYTES + (long) layerCount * Integer.BYTES
+                + Integer.BYTES + nameLength + Integer.BYTES + (long) layerCount * Long.BYTES;
+        // meilleur modle : prsence, priode, deux pertes
+        long best = Integer.BYTES + Long.BYTES + 2 * Double.BYTES;
+        return header + (2 + stateCount) * weightCount * Float.BYTES + best + Integer.BYTES;
+    }
+
+    /**
+     * Copier l'tat de l'apprentissage dans un tampon, sans la somme de
+     * contrle : le tampon est positionn aprs la dernire valeur.
+     *
+     * @param buffer
+     *            (ByteBuffer), tampon petit-boutiste d'au moins size octets
+     * @param epoch
+     *            (long), priode suivante
+     * @param seeds
+     *            (long[]), graines de l'apprentissage
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param stopping
+     *            (EarlyStopping), arrt anticip, ou null
+     */
+    static void write(ByteBuffer buffer, long epoch, long[] seeds, BackpropagationNeuralNetwork network,
+            EarlyStopping stopping) {
+        int layerCount = network.getLayerCount();
+        int stateCount = network.getLayer(0).getOptimizerState().length;
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(epoch).putInt(seeds.length);
+        for (long seed : seeds) {
+            buffer.putLong(seed);
+        }
+        buffer.putInt(layerCount).putInt(network.getLayer(0).getInputSize());
+        for (int i = 0; i < layerCount; i++) {
+            buffer.putInt(network.getLayer(i).getOutputSize());
+        }
+        for (int i = 0; i < layerCount; i++) {
+            buffer.putInt(activationId(network.getLayer(i).getActivation()));
+        }
+        byte[] name = optimizerName(network);
+        buffer.putInt(name.length).put(name);
+        buffer.putInt(stateCount);
+        for (int i = 0; i < layerCount; i++) {
+            buffer.putLong(network.getLayer(i).getSteps());
+        }
+        for (int i = 0; i < layerCount; i++) {
+            writeFloats(buffer, FloatBuffer.wrap(network.getLayer(i).getWeights()));
+        }
+        for (int i = 0; i < layerCount; i++) {
+            float[][] state = network.getLayer(i).getOptimizerState();
+            if (state.length != stateCount) {
+                throw new IllegalStateException("all layers must use the same optimizer");
+            }
+            for (float[] values : state) {
+                writeFloats(buffer, FloatBuffer.wrap(values));
+            }
+        }
+        InferenceModel best = stopping == null ? null : stopping.getBestModel();
+        buffer.putInt(best == null ? 0 : 1);
+        buffer.putLong(stopping == null ? -1 : stopping.getBestEpoch());
+        buffer.putDouble(stopping == null ? Double.POSITIVE_INFINITY : stopping.getBestLoss());
+        buffer.putDouble(stopping == null ? Double.NaN : stopping.getLastLoss());
+        if (best != null) {
+            for (int i = 0; i < layerCount; i++) {
+                writeFloats(buffer, best.getWeights(i));
+            }
+        }
+    }
+
+    private static int activationId(Activation activation) {
+        return activation instanceof Activations ? ((Activations) activation).getId() : -1;
+    }
+
+    private static byte[] optimizerName(BackpropagationNeuralNetwork network) {
+        return network.getLayer(0).getOptimizer().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Copie en bloc : le petit-boutiste est l'ordre des octets du processeur
+    // sur x86 et ARM
+    private static void writeFloats(ByteBuffer buffer, FloatBuffer values) {
+        int count = values.remaining();
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + count * Float.BYTES);
+    }
+
+    /**
+     * Remettre dans le rseau les poids, l'tat de l'optimiseur et le nombre
+     * de modifications des poids
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), rseau de mme topologie,
+     *            mmes fonctions d'activation et mme optimiseur que celui
+     *            de l'apprentissage
+     * @throws IOException
+     *             si le point de reprise ne correspond pas au rseau; le
+     *             rseau n'est alors pas modifi
+     */
+    public void restore(BackpropagationNeuralNetwork network) throws IOException {
+        if (network.getLayerCount() != weights.length || network.getLayer(0).getInputSize() != sizes[0]) {
+            throw new IOException("Checkpoint topology does not match the network");
+        }
+        for (int i = 0; i < weights.length; i++) {
+            Layer layer = network.getLayer(i);
+            if (layer.getOutputSize() != sizes[i + 1]) {
+                throw new IOException("Checkpoint topology does not match the network");
+            }
+            if (activationId(layer.getActivation()) != activationIds[i]) {
+                throw new IOException("Checkpoint activation function of layer " + i + " does not match the network: "
+                        + layer.getActivation());
+            }
+            if (!optimizer.equals(layer.getOptimizer().toString())
+                    || layer.getOptimizerState().length != optimizerState[i].length) {
+                throw new IOException("Checkpoint optimizer " + optimizer + " does not match the network optimizer "
+                        + layer.getOptimizer());
+            }
+        }
+        for (int i = 0; i < weights.length; i++) {
+            Layer layer = network.getLayer(i);
+            System.arraycopy(weights[i], 0, layer.getWeights(), 0, weights[i].length);
+            float[][] state = layer.getOptimizerState();
+            for (int s = 0; s < state.length; s++) {
+                System.arraycopy(optimizerState[i][s], 0, state[s], 0, state[s].length);
+            }
+            layer.setSteps(steps[i]);
+        }
+    }
+
+    /**
+     * Remettre dans le rseau l'tat de l'apprentissage, et dans l'arrt
+     * anticip le meilleur modle et les pertes de validation
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), rseau de mme topologie,
+     *            mmes fonctions d'activation et mme optimiseur que celui
+     *            de l'apprentissage
+     * @param stopping
+     *            (EarlyStopping), l'arrt anticip
+     * @throws IOException
+     *             si le point de reprise ne correspond pas au rseau
+     */
+    public void restore(BackpropagationNeuralNetwork network, EarlyStopping stopping) throws IOException {
+        restore(network);
+        InferenceModel best = null;
+        if (bestWeights != null) {
+            Activation[] activations = new Activation[weights.length];
+            for (int i = 0; i < activations.length; i++) {
+                activations[i] = network.getLayer(i).getActivation();
+            }
+            best = new InferenceModel(sizes, bestWeights, activations);
+        }
+        stopping.resume(best, bestLoss, bestEpoch, lastLoss);
+    }
+
+    /**
+     * @return (long), priode suivante, la premire  apprendre  la reprise
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return (long[]), graines de l'apprentissage, dans l'ordre donn au
+     *         Checkpointer
+     */
+    public long[] getSeeds() {
+        return seeds.clone();
+    }
+
+    /**
+     * @return (int[]), nombre de neurones de chaque niveau, de l'entre vers
+     *         la sortie
+     */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+}
@@ -0,0 +1,272 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * criture asynchrone des points de reprise d'un apprentissage (voir
+ * Checkpoint).
+ *
+ * checkpoint copie l'tat du rseau dans l'un de deux tampons, puis retourne
+ * aussitt : un fil d'excution en arrire-plan calcule la somme de contrle
+ * et crit le tampon sur le disque pendant que l'apprentissage continue, dans
+ * l'autre tampon au besoin. Si le disque est plus lent que les points de
+ * reprise, le point de reprise en attente est remplac par le plus rcent :
+ * l'apprentissage n'attend jamais le disque, et le seul cot sur son fil
+ * d'excution est la copie en mmoire.
+ *
+ * Chaque point de reprise est crit dans un fichier temporaire  ct du
+ * fichier final, forc sur le disque, puis renomm d'un seul coup par-dessus
+ * le prcdent : aprs un arrt brutal, le fichier contient toujours un point
+ * de reprise complet, le dernier ou l'avant-dernier.
+ *
+ * Les deux tampons sont hors du tas Java et font chacun deux fois la taille
+ * des poids, plus l'tat de l'optimiseur. checkpoint doit toujours tre
+ * appel par le mme fil d'excution, celui de l'apprentissage.
+ *
+ * Exemple :
+ *
+ * <pre>
+ * try (Checkpointer checkpointer = new Checkpointer(path, network, splitSeed, shuffleSeed)) {
+ *     stopping.checkpoints(checkpointer, 100).train(network, training, 10000, 1, learningRate, momentum);
+ * }
+ * </pre>
+ */
+public final class Checkpointer implements AutoCloseable {
+    // Fichier final
+    private final Path path;
+    // Fichier temporaire, dans le mme rpertoire pour que le renommage soit
+    // atomique
+    private final Path temporary;
+    // Rseau de l'apprentissage
+    private final BackpropagationNeuralNetwork network;
+    // Graines de l'apprentissage
+    private final long[] seeds;
+    // Les deux tampons, crs au premier point de reprise
+    private final ByteBuffer[] buffers = new ByteBuffer[2];
+    // Fil d'excution des critures
+    private final Thread writer;
+
+    // Tout ce qui suit est protg par lock
+    private final Object lock = new Object();
+    // Tampon prt  crire, -1 s'il n'y en a pas
+    private int pending = -1;
+    // Tampon en cours d'criture, -1 s'il n'y en a pas
+    private int writing = -1;
+    private boolean closed;
+    // chec de la dernire criture, null si elle a russi
+    private IOException failure;
+    // Mesures
+    private long checkpointCount;
+    private long writeCount;
+    private long snapshotNanos;
+    private long writeNanos;
+
+    /**
+     * Constructeur : dmarre le fil d'excution des critures
+     *
+     * @param path
+     *            (Path), le fichier des points de reprise, remplac  chaque
+     *            criture
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau de l'apprentissage
+     * @param seeds
+     *            (long...), graines des jeux de donnes de l'apprentissage,
+     *            rendues par Checkpoint.getSeeds pour recrer les mmes jeux
+     *             la reprise
+     */
+    public Checkpointer(Path path, BackpropagationNeuralNetwork network, long... seeds) {
+        this.path = path;
+        this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        this.network = network;
+        this.seeds = seeds.clone();
+        this.writer = new Thread(this::writeLoop, "Checkpointer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Copier l'tat du rseau et le confier au fil d'excution des critures
+     *
+     * @param epoch
+     *            (long), priode suivante, la premire  apprendre  la
+     *            reprise
+     * @throws IOException
+     *             si l'criture d'un point de reprise prcdent a chou
+     */
+    public void checkpoint(long epoch) throws IOException {
+        checkpoint(epoch, null);
+    }
+
+    /**
+     * Copier l'tat du rseau et de l'arrt anticip et le confier au fil
+     * d'excution des critures
+     *
+     * @param epoch
+     *            (long), priode suivante, la premire  apprendre  la
+     *            reprise
+     * @param stopping
+     *            (EarlyStopping), l'arrt anticip de l'apprentissage, ou
+     *            null
+     * @throws IOException
+     *             si l'criture d'un point de reprise prcdent a chou
+     */
+    public void checkpoint(long epoch, EarlyStopping stopping) throws IOException {
+        long started = System.nanoTime();
+        int target;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("checkpointer is closed");
+            }
+            if (failure != null) {
+                throw new IOException("Checkpoint could not be written: " + path, failure);
+            }
+            // Remplacer le point de reprise en attente, sinon prendre le
+            // tampon qui n'est pas en cours d'criture
+            target = pending >= 0 ? pending : writing == 0 ? 1 : 0;
+            pending = -1;
+        }
+        long size = Checkpoint.size(network, seeds.length);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("network too large for a checkpoint: " + size + " bytes");
+        }
+        if (buffers[target] == null || buffers[target].capacity() < size) {
+            buffers[target] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        Checkpoint.write(buffers[target], epoch, seeds, network, stopping);
+        synchronized (lock) {
+            pending = target;
+            checkpointCount++;
+            snapshotNanos += System.nanoTime() - started;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * crire le point de reprise en attente, puis arrter le fil d'excution
+     * des critures
+     *
+     * @throws IOException
+     *             si la dernire criture a chou
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Checkpoint could not be written: " + path, failure);
+            }
+        }
+    }
+
+    /**
+     * @return (long), nombre d'appels  checkpoint
+     */
+    public long getCheckpointCount() {
+        synchronized (lock) {
+            return checkpointCount;
+        }
+    }
+
+    /**
+     * @return (long), nombre de points de reprise crits sur le disque; moins
+     *         que getCheckpointCount quand des points de reprise en attente
+     *         ont t remplacs
+     */
+    public long getWriteCount() {
+        synchronized (lock) {
+            return writeCount;
+        }
+    }
+
+    /**
+     * @return (long), temps total pass dans checkpoint par le fil
+     *         d'excution de l'apprentissage, en nanosecondes
+     */
+    public long getSnapshotNanos() {
+        synchronized (lock) {
+            return snapshotNanos;
+        }
+    }
+
+    /**
+     * @return (long), temps total des critures en arrire-plan, en
+     *         nanosecondes
+     */
+    public long getWriteNanos() {
+        synchronized (lock) {
+            return writeNanos;
+        }
+    }
+
+    // Boucle du fil d'excution des critures
+    private void writeLoop() {
+        while (true) {
+            int index;
+            synchronized (lock) {
+                while (pending < 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Seul close arrte ce fil d'excution
+                    }
+                }
+                if (pending < 0) {
+                    return;
+                }
+                index = pending;
+                pending = -1;
+                writing = index;
+            }
+            long started = System.nanoTime();
+            IOException error = null;
+            try {
+                write(buffers[index]);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (lock) {
+                writing = -1;
+                failure = error;
+                if (error == null) {
+                    writeCount++;
+                }
+                writeNanos += System.nanoTime() - started;
+            }
+        }
+    }
+
+    // Ajouter la somme de contrle, crire le fichier temporaire puis le
+    // renommer
+    private void write(ByteBuffer buffer) throws IOException {
+        ByteBuffer body = buffer.duplicate();
+        body.flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,375 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base des jeux de donnes dcoups en blocs de taille fixe. Chaque bloc de
+ * chunkRows cas est lu d'un seul coup dans un DataChunk.
+ *
+ * Options :
+ * <ul>
+ * <li>mlange par blocs :  chaque priode, les blocs sont lus dans un ordre
+ * diffrent et les cas sont mlangs  l'intrieur de chaque bloc. L'ordre ne
+ * dpend que de la graine et du numro de la priode;</li>
+ * <li>lecture anticipe : un fil d'excution en arrire-plan lit les morceaux
+ * suivants pendant que le morceau courant sert  l'apprentissage. Les fils
+ * de lecture appartiennent au jeu de donnes et servent d'une lecture 
+ * l'autre : un seul fil pour des priodes successives, un par lecture
+ * simultane sinon. Un fil inutilis pendant une minute s'arrte.</li>
+ * </ul>
+ */
+public abstract class ChunkedDataset implements Dataset {
+    // Nombre de valeurs en entre par cas
+    private final int inputSize;
+    // Nombre de valeurs attendues par cas
+    private final int outputSize;
+    // Nombre de cas par bloc
+    private final int chunkRows;
+    // Mlanger les blocs et les cas  chaque priode
+    private boolean shuffle;
+    // Graine du mlange
+    private long seed;
+    // Nombre de morceaux lus  l'avance, 0 pour aucune lecture anticipe
+    private int prefetch = 1;
+    // Fils d'excution de la lecture anticipe, cr  la premire lecture
+    private ExecutorService prefetcher;
+
+    /**
+     * Constructeur
+     *
+     * @param inputSize
+     *            (int), nombre de valeurs en entre par cas
+     * @param outputSize
+     *            (int), nombre de valeurs attendues par cas
+     * @param chunkRows
+     *            (int), nombre de cas par bloc
+     */
+    protected ChunkedDataset(int inputSize, int outputSize, int chunkRows) {
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("chunkRows must be positive: " + chunkRows);
+        }
+        if ((long) chunkRows * Math.max(inputSize, outputSize) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk too large: " + chunkRows + " rows");
+        }
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Mlanger les blocs, puis les cas de chaque bloc,  chaque priode
+     *
+     * @param seed
+     *            (long), graine du mlange
+     * @return (ChunkedDataset), ce jeu de donnes
+     */
+    public ChunkedDataset shuffle(long seed) {
+        this.shuffle = true;
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Choisir le nombre de morceaux lus  l'avance en arrire-plan
+     *
+     * @param chunks
+     *            (int), nombre de morceaux, 0 pour tout lire dans le fil
+     *            d'excution de l'apprentissage
+     * @return (ChunkedDataset), ce jeu de donnes
+     */
+    public ChunkedDataset prefetch(int chunks) {
+        if (chunks < 0) {
+            throw new IllegalArgumentException("chunks must not be negative: " + chunks);
+        }
+        this.prefetch = chunks;
+        return this;
+    }
+
+    @Override
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    @Override
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * @return (int), nombre de cas par bloc
+     */
+    public int getChunkRows() {
+        return chunkRows;
+    }
+
+    @Override
+    public DataReader open(long epoch) throws IOException {
+        int blockCount = getBlockCount();
+        int[] order = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = null;
+        if (shuffle) {
+            // Une graine diffrente, mais reproductible, par priode
+            random = new SplittableRandom(seed + epoch * 0x9E3779B97F4A7C15L);
+            for (int i = blockCount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int block = order[i];
+                order[i] = order[j];
+                order[j] = block;
+            }
+        }
+        BlockReader reader = new BlockReader(openBlocks(), order, random);
+        if (prefetch == 0) {
+            return reader;
+        }
+        return new PrefetchingReader(reader, prefetch, prefetcher());
+    }
+
+    // Fils de la lecture anticipe : un fil libre est rutilis, un nouveau
+    // fil n'est cr que pour une lecture simultane
+    private synchronized ExecutorService prefetcher() {
+        if (prefetcher == null) {
+            prefetcher = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), task -> {
+                        Thread thread = new Thread(task, "dataset-prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return prefetcher;
+    }
+
+    /**
+     * @return (int), nombre de blocs
+     */
+    protected abstract int getBlockCount();
+
+    /**
+     * Ouvrir l'accs aux blocs pour une lecture complte
+     *
+     * @return (BlockSource), l'accs aux blocs, ferm  la fin de la lecture
+     * @throws IOException
+     *             si les donnes ne peuvent tre ouvertes
+     */
+    protected abstract BlockSource openBlocks() throws IOException;
+
+    /**
+     * Accs direct aux blocs d'un jeu de donnes
+     */
+    protected interface BlockSource extends Closeable {
+
+        /**
+         * Lire un bloc complet
+         *
+         * @param block
+         *            (int), index du bloc
+         * @param inputs
+         *            (float[]), reoit les cas en entre [chunkRows x
+         *            inputSize]
+         * @param targets
+         *            (float[]), reoit les rsultats attendus [chunkRows x
+         *            outputSize]
+         * @return (int), nombre de cas lus, chunkRows sauf pour le dernier
+         *         bloc
+         * @throws IOException
+         *             si le bloc ne peut tre lu
+         */
+        int read(int block, float[] inputs, float[] targets) throws IOException;
+    }
+
+    /**
+     * Lecture des blocs dans l'ordre choisi, dans le fil d'excution appelant
+     */
+    private final class BlockReader implements DataReader {
+        private final BlockSource source;
+        private final int[] order;
+        // null si les cas ne sont pas mlangs
+        private final SplittableRandom random;
+        private final DataChunk chunk;
+        private int position;
+
+        BlockReader(BlockSource source, int[] order, SplittableRandom random) {
+            this.source = source;
+            this.order = order;
+            this.random = random;
+            this.chunk = newChunk();
+        }
+
+        DataChunk newChunk() {
+            return new DataChunk(chunkRows, inputSize, outputSize);
+        }
+
+        /**
+         * Remplir un morceau avec le bloc suivant
+         *
+         * @return (boolean), faux  la fin des donnes
+         */
+        boolean fill(DataChunk target) throws IOException {
+            if (position == order.length) {
+                return false;
+            }
+            int rows = source.read(order[position++], target.getInputs(), target.getTargets());
+            target.setRows(rows);
+            if (random != null) {
+                shuffleRows(target);
+            }
+            return true;
+        }
+
+        @Override
+        public DataChunk next() throws IOException {
+            return fill(chunk) ? chunk : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        // Mlange de Fisher-Yates des lignes, sur place
+        private void shuffleRows(DataChunk target) {
+            float[] inputs = target.getInputs();
+            float[] targets = target.getTargets();
+            for (int i = target.getRows() - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                swapRows(inputs, inputSize, i, j);
+                swapRows(targets, outputSize, i, j);
+            }
+        }
+
+        private void swapRows(float[] matrix, int columns, int i, int j) {
+            int a = i * columns;
+            int b = j * columns;
+            for (int k = 0; k < columns; k++) {
+                float value = matrix[a + k];
+                matrix[a + k] = matrix[b + k];
+                matrix[b + k] = value;
+            }
+        }
+    }
+
+    /**
+     * Lecture anticipe : un fil d'excution en arrire-plan, prt par le jeu
+     * de donnes, remplit les morceaux libres pendant que l'appelant utilise
+     * le morceau courant.
+     */
+    private static final class PrefetchingReader implements DataReader {
+        // Marque la fin des donnes dans la file des morceaux remplis
+        private static final DataChunk END = new DataChunk(0, 0, 0);
+        private final BlockReader source;
+        private final BlockingQueue<DataChunk> free;
+        private final BlockingQueue<DataChunk> filled;
+        // Lecture en arrire-plan, interrompue par close
+        private final Future<?> task;
+        // Pris par la lecture quand elle commence, ou par close si elle n'a
+        // pas encore commenc
+        private final AtomicBoolean started = new AtomicBoolean();
+        // Fin de la lecture en arrire-plan
+        private final CountDownLatch done = new CountDownLatch(1);
+        // Erreur du fil d'excution de lecture, transmise  l'appelant
+        private volatile Exception failure;
+        // Morceau en cours d'utilisation par l'appelant
+        private DataChunk current;
+        private boolean finished;
+
+        PrefetchingReader(BlockReader source, int prefetch, ExecutorService executor) {
+            this.source = source;
+            // Le morceau de l'appelant, ceux lus  l'avance et la marque de
+            // fin
+            this.free = new ArrayBlockingQueue<>(prefetch + 1);
+            this.filled = new ArrayBlockingQueue<>(prefetch + 2);
+            for (int i = 0; i <= prefetch; i++) {
+                free.add(source.newChunk());
+            }
+            this.task = executor.submit(this::readAhead);
+        }
+
+        private void readAhead() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                fillAhead();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void fillAhead() {
+            try {
+                while (true) {
+                    DataChunk chunk = free.take();
+                    if (!source.fill(chunk)) {
+                        break;
+                    }
+                    filled.put(chunk);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+            filled.add(END);
+        }
+
+        @Override
+        public DataChunk next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+            DataChunk chunk;
+            try {
+                chunk = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next chunk");
+            }
+            if (chunk == END) {
+                finished = true;
+                Exception error = failure;
+                if (error instanceof IOException) {
+                    throw (IOException) error;
+                }
+                if (error != null) {
+                    throw (RuntimeException) error;
+                }
+                return null;
+            }
+            current = chunk;
+            return chunk;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Attendre la fin de la lecture en arrire-plan avant de fermer
+            // la source, sauf si elle n'a jamais commenc
+            if (!started.compareAndSet(false, true)) {
+                task.cancel(true);
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Jeu de donnes CSV : une ligne par cas, inputSize valeurs en entre suivies
+ * de outputSize valeurs attendues, spares par des virgules. Les lignes vides
+ * sont ignores.
+ *
+ *  la cration, le fichier est parcouru une fois pour noter la position du
+ * dbut de chaque bloc (un long par bloc). Chaque bloc est ensuite relu
+ * directement  sa position et ses nombres sont convertis octet par octet dans
+ * les matrices du morceau, sans crer de String ni de tableau par ligne.
+ */
+public class CsvDataset extends ChunkedDataset {
+    // Taille du tampon de lecture
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Puissances de 10 reprsentes exactement par un double
+    private static final double[] POWERS_OF_TEN = new double[23];
+    // Au-del, les chiffres suivants ne changent plus la valeur d'un float
+    private static final long MANTISSA_LIMIT = 100_000_000_000_000_000L;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Le fichier de donnes
+    private final Path path;
+    // Position dans le fichier du premier cas de chaque bloc
+    private final long[] blockOffsets;
+    // Nombre de cas dans le fichier
+    private final long rowCount;
+
+    /**
+     * Constructeur
+     *
+     * @param path
+     *            (Path), le fichier CSV
+     * @param inputSize
+     *            (int), nombre de valeurs en entre par cas
+     * @param outputSize
+     *            (int), nombre de valeurs attendues par cas
+     * @param chunkRows
+     *            (int), nombre de cas par bloc
+     * @param hasHeader
+     *            (boolean), vrai si la premire ligne contient le nom des
+     *            colonnes
+     * @throws IOException
+     *             si le fichier ne peut tre lu
+     */
+    public CsvDataset(Path path, int inputSize, int outputSize, int chunkRows, boolean hasHeader)
+            throws IOException {
+        super(inputSize, outputSize, chunkRows);
+        this.path = path;
+        long[] offsets = new long[16];
+        int blocks = 0;
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            long position = 0;
+            long lineStart = 0;
+            boolean lineHasData = false;
+            boolean skipHeader = hasHeader;
+            int count;
+            while ((count = channel.read(buffer)) >= 0) {
+                for (int i = 0; i < count; i++) {
+                    byte b = bytes[i];
+                    if (b == '\n') {
+                        if (lineHasData) {
+                            if (skipHeader) {
+                                skipHeader = false;
+                            } else {
+                                if (rows % chunkRows == 0) {
+                                    if (blocks == offsets.length) {
+                                        offsets = Arrays.copyOf(offsets, blocks * 2);
+                                    }
+                                    offsets[blocks++] = lineStart;
+                                }
+                                rows++;
+                            }
+                        }
+                        lineStart = position + i + 1;
+                        lineHasData = false;
+                    } else if (!isBlank(b)) {
+                        lineHasData = true;
+                    }
+                }
+                position += count;
+                buffer.clear();
+            }
+            // Dernire ligne sans fin de ligne
+            if (lineHasData && !skipHeader) {
+                if (rows % chunkRows == 0) {
+                    if (blocks == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, blocks + 1);
+                    }
+                    offsets[blocks++] = lineStart;
+                }
+                rows++;
+            }
+        }
+        this.blockOffsets = Arrays.copyOf(offsets, blocks);
+        this.rowCount = rows;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    protected int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    @Override
+    protected BlockSource openBlocks() throws IOException {
+        return new CsvBlockSource(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Lecture des blocs  partir de leur position dans le fichier
+     */
+    private final class CsvBlockSource implements BlockSource {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final byte[] bytes = buffer.array();
+        // Prochain octet  lire dans bytes
+        private int next;
+        // Nombre d'octets valides dans bytes
+        private int limit;
+        // Numro du cas en cours, pour les messages d'erreur
+        private long row;
+
+        CsvBlockSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(int block, float[] inputs, float[] targets) throws IOException {
+            channel.position(blockOffsets[block]);
+            next = 0;
+            limit = 0;
+            int inputSize = getInputSize();
+            int outputSize = getOutputSize();
+            int rows = (int) Math.min(getChunkRows(), rowCount - (long) block * getChunkRows());
+            row = (long) block * getChunkRows();
+            for (int r = 0; r < rows; r++, row++) {
+                skipBlankLines();
+                for (int i = 0; i < inputSize; i++) {
+                    inputs[r * inputSize + i] = parseField(false);
+                }
+                for (int i = 0; i < outputSize; i++) {
+                    targets[r * outputSize + i] = parseField(i == outputSize - 1);
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        // Octet suivant sans l'avancer, -1  la fin du fichier
+        private int peek() throws IOException {
+            if (next == limit) {
+                buffer.clear();
+                int count;
+                do {
+                    count = channel.read(buffer);
+                } while (count == 0);
+                if (count < 0) {
+                    return -1;
+                }
+                next = 0;
+                limit = count;
+            }
+            return bytes[next];
+        }
+
+        private void skipBlankLines() throws IOException {
+            int b;
+            while ((b = peek()) != -1 && (b == '\n' || isBlank((byte) b))) {
+                next++;
+            }
+        }
+
+        private void skipBlanks() throws IOException {
+            int b;
+            while ((b = peek()) != -1 && isBlank((byte) b)) {
+                next++;
+            }
+        }
+
+        /**
+         * Convertir le champ suivant en float et consommer son sparateur
+         *
+         * @param lastField
+         *            (boolean), vrai si le champ doit terminer la ligne
+         */
+        private float parseField(boolean lastField) throws IOException {
+            skipBlanks();
+            int b = peek();
+            if (b == -1) {
+                throw new EOFException("Unexpected end of file at row " + row + ": " + path);
+            }
+            boolean negative = false;
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                next++;
+            }
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            while ((b = peek()) >= '0' && b <= '9') {
+                if (mantissa < MANTISSA_LIMIT) {
+                    mantissa = mantissa * 10 + (b - '0');
+                } else {
+                    exponent++;
+                }
+                digits++;
+                next++;
+            }
+            if (b == '.') {
+                next++;
+                while ((b = peek()) >= '0' && b <= '9') {
+                    if (mantissa < MANTISSA_LIMIT) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        exponent--;
+                    }
+                    digits++;
+                    next++;
+                }
+            }
+            if (digits == 0) {
+                throw invalidNumber();
+            }
+            if (b == 'e' || b == 'E') {
+                next++;
+                boolean negativeExponent = false;
+                b = peek();
+                if (b == '-' || b == '+') {
+                    negativeExponent = b == '-';
+                    next++;
+                }
+                int value = 0;
+                int exponentDigits = 0;
+                while ((b = peek()) >= '0' && b <= '9') {
+                    if (value < 10_000) {
+                        value = value * 10 + (b - '0');
+                    }
+                    exponentDigits++;
+                    next++;
+                }
+                if (exponentDigits == 0) {
+                    throw invalidNumber();
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+            skipBlanks();
+            b = peek();
+            if (lastField) {
+                if (b != '\n' && b != -1) {
+                    throw new IOException("Expected " + (getInputSize() + getOutputSize()) + " values at row "
+                            + row + ": " + path);
+                }
+            } else if (b != ',') {
+                throw b == '\n' || b == -1
+                        ? new IOException("Expected " + (getInputSize() + getOutputSize()) + " values at row "
+                                + row + ": " + path)
+                        : invalidNumber();
+            }
+            if (b != -1) {
+                next++;
+            }
+            double value = mantissa;
+            if (exponent >= 0) {
+                value *= exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : Math.pow(10, exponent);
+            } else {
+                value /= -exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[-exponent] : Math.pow(10, -exponent);
+            }
+            return (float) (negative ? -value : value);
+        }
+
+        private IOException invalidNumber() {
+            return new IOException("Invalid number at row " + row + ": " + path);
+        }
+    }
+}
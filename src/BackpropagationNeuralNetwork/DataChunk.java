@@ -0,0 +1,68 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Morceau ("chunk") d'un jeu de donnes : un nombre fixe de cas rangs dans
+ * deux matrices contigus de floats, une pour les entres et une pour les
+ * rsultats attendus. Les tableaux sont allous une seule fois et rutiliss
+ * pour chaque morceau lu.
+ */
+public final class DataChunk {
+    // Cas en entre [capacity x inputSize]
+    private final float[] inputs;
+    // Rsultats attendus [capacity x outputSize]
+    private final float[] targets;
+    // Nombre maximal de cas
+    private final int capacity;
+    // Nombre de cas valides actuellement dans le morceau
+    private int rows;
+
+    /**
+     * Constructeur
+     *
+     * @param capacity
+     *            (int), nombre maximal de cas
+     * @param inputSize
+     *            (int), nombre de valeurs en entre par cas
+     * @param outputSize
+     *            (int), nombre de valeurs attendues par cas
+     */
+    public DataChunk(int capacity, int inputSize, int outputSize) {
+        this.capacity = capacity;
+        this.inputs = new float[capacity * inputSize];
+        this.targets = new float[capacity * outputSize];
+    }
+
+    /**
+     * @return (float[]), matrice des cas en entre, seules les getRows()
+     *         premires lignes sont valides
+     */
+    public float[] getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return (float[]), matrice des rsultats attendus, seules les getRows()
+     *         premires lignes sont valides
+     */
+    public float[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * @return (int), nombre de cas valides
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return (int), nombre maximal de cas
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    void setRows(int rows) {
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,20 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Lecture squentielle des morceaux d'un jeu de donnes
+ */
+public interface DataReader extends Closeable {
+
+    /**
+     * Obtenir le morceau suivant. Le morceau appartient au lecteur et n'est
+     * valide que jusqu'au prochain appel.
+     *
+     * @return (DataChunk), le morceau suivant, ou null  la fin des donnes
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    DataChunk next() throws IOException;
+}
@@ -0,0 +1,37 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+
+/**
+ * Jeu de donnes lu par morceaux. Seuls quelques morceaux sont en mmoire  la
+ * fois : le jeu de donnes peut tre bien plus gros que la mmoire vive.
+ */
+public interface Dataset {
+
+    /**
+     * @return (int), nombre de valeurs en entre par cas
+     */
+    int getInputSize();
+
+    /**
+     * @return (int), nombre de valeurs attendues par cas
+     */
+    int getOutputSize();
+
+    /**
+     * @return (long), nombre total de cas
+     */
+    long getRowCount();
+
+    /**
+     * Commencer une lecture complte du jeu de donnes.
+     *
+     * @param epoch
+     *            (long), numro de la priode d'apprentissage; dtermine
+     *            l'ordre des cas lorsque le jeu de donnes est mlang
+     * @return (DataReader), le lecteur,  fermer aprs usage
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    DataReader open(long epoch) throws IOException;
+}
@@ -0,0 +1,384 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+
+/**
+ * Arrt anticip de l'apprentissage : aprs chaque priode, le rseau est
+ * mesur sur un jeu de validation qu'il n'apprend jamais (voir
+ * ArrayDataset.split). L'apprentissage s'arrte quand la perte de validation
+ * ne s'est plus amliore d'au moins minDelta depuis patience priodes; un
+ * plateau arrte donc l'apprentissage autant qu'une remonte de la perte
+ * (surapprentissage).
+ *
+ * La validation passe par le chemin d'infrence : le jeu de validation est lu
+ * morceau par morceau avec InferenceModel.predict, directement sur les poids
+ * du rseau, sans copie et avec des espaces de travail rutiliss d'une
+ * validation  l'autre. Rien de l'apprentissage n'est touch : ni les poids,
+ * ni l'inertie, ni les espaces de travail, ni les mesures de TrainingMetrics.
+ * Les poids ne sont figs avec freeze() que lorsque la perte s'amliore : ce
+ * modle fig de la meilleure priode est gard en mmoire et peut tre remis
+ * dans le rseau avec restoreBest.
+ *
+ * Exemple :
+ *
+ * <pre>
+ * ArrayDataset[] parts = dataset.split(0.2, seed);
+ * EarlyStopping stopping = new EarlyStopping(parts[1]).patience(200);
+ * stopping.train(network, parts[0].shuffle(seed), 10000, 1, learningRate, momentum);
+ * </pre>
+ */
+public final class EarlyStopping {
+    // Cas de validation, jamais appris
+    private final Dataset validation;
+    // Nombre de priodes sans amlioration avant l'arrt
+    private long patience = 100;
+    // Amlioration minimale de la perte pour compter comme une amlioration
+    private double minDelta;
+    // Nombre de priodes entre deux validations
+    private int interval = 1;
+    // Points de reprise de train, null sans points de reprise
+    private Checkpointer checkpointer;
+    // Nombre de priodes entre deux points de reprise
+    private int checkpointInterval;
+
+    // Rseau valid par update et modle qui lit ses poids sans copie
+    private BackpropagationNeuralNetwork viewed;
+    private InferenceModel view;
+    // Espaces de travail de la validation, rutiliss d'une priode  l'autre
+    private float[] scratch;
+    private float[] output;
+
+    // Modle fig de la meilleure priode, null avant la premire validation
+    private InferenceModel best;
+    // Perte de validation du meilleur modle
+    private double bestLoss = Double.POSITIVE_INFINITY;
+    // Priode du meilleur modle
+    private long bestEpoch = -1;
+    // Perte de la dernire validation
+    private double lastLoss = Double.NaN;
+
+    /**
+     * Constructeur
+     *
+     * @param validation
+     *            (Dataset), jeu de validation, distinct du jeu d'apprentissage
+     */
+    public EarlyStopping(Dataset validation) {
+        this.validation = validation;
+    }
+
+    /**
+     * @param patience
+     *            (long), nombre de priodes sans amlioration avant l'arrt
+     * @return (EarlyStopping), cet arrt anticip
+     */
+    public EarlyStopping patience(long patience) {
+        if (patience < 1) {
+            throw new IllegalArgumentException("patience must be positive: " + patience);
+        }
+        this.patience = patience;
+        return this;
+    }
+
+    /**
+     * @param minDelta
+     *            (double), baisse minimale de la perte de validation pour
+     *            compter comme une amlioration; 0 par dfaut
+     * @return (EarlyStopping), cet arrt anticip
+     */
+    public EarlyStopping minDelta(double minDelta) {
+        if (minDelta < 0) {
+            throw new IllegalArgumentException("minDelta must not be negative: " + minDelta);
+        }
+        this.minDelta = minDelta;
+        return this;
+    }
+
+    /**
+     * Valider seulement toutes les interval priodes, quand le jeu de
+     * validation est gros par rapport  une priode d'apprentissage
+     *
+     * @param interval
+     *            (int), nombre de priodes entre deux validations; 1 par
+     *            dfaut
+     * @return (EarlyStopping), cet arrt anticip
+     */
+    public EarlyStopping interval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * crire un point de reprise toutes les interval priodes pendant train,
+     * aprs la validation de la priode (voir Checkpointer)
+     *
+     * @param checkpointer
+     *            (Checkpointer), crit les points de reprise du rseau de
+     *            train
+     * @param interval
+     *            (int), nombre de priodes entre deux points de reprise
+     * @return (EarlyStopping), cet arrt anticip
+     */
+    public EarlyStopping checkpoints(Checkpointer checkpointer, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.checkpointer = checkpointer;
+        this.checkpointInterval = interval;
+        return this;
+    }
+
+    /**
+     * Apprendre jusqu' l'arrt anticip ou jusqu' maxEpochs priodes, puis
+     * remettre dans le rseau les poids de la meilleure priode.
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param training
+     *            (Dataset), jeu d'apprentissage
+     * @param maxEpochs
+     *            (long), nombre maximal de priodes
+     * @param batchSize
+     *            (int), nombre de cas dont les gradients sont moyenns avant
+     *            chaque modification des poids
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     * @return (long), nombre de priodes apprises
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    public long train(BackpropagationNeuralNetwork network, Dataset training, long maxEpochs, int batchSize,
+            float learningRate, float momentum) throws IOException {
+        return train(network, training, maxEpochs, batchSize, LearningRateSchedules.constant(learningRate),
+                momentum);
+    }
+
+    /**
+     * Apprendre jusqu' l'arrt anticip ou jusqu' maxEpochs priodes, avec
+     * un taux d'apprentissage qui volue d'une priode  l'autre, puis
+     * remettre dans le rseau les poids de la meilleure priode.
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param training
+     *            (Dataset), jeu d'apprentissage
+     * @param maxEpochs
+     *            (long), nombre maximal de priodes
+     * @param batchSize
+     *            (int), nombre de cas dont les gradients sont moyenns avant
+     *            chaque modification des poids
+     * @param schedule
+     *            (LearningRateSchedule), taux d'apprentissage de chaque
+     *            priode
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     * @return (long), nombre de priodes apprises
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    public long train(BackpropagationNeuralNetwork network, Dataset training, long maxEpochs, int batchSize,
+            LearningRateSchedule schedule, float momentum) throws IOException {
+        return train(network, training, 0, maxEpochs, batchSize, schedule, momentum);
+    }
+
+    /**
+     * Reprendre un apprentissage  la priode firstEpoch, par exemple aprs
+     * Checkpoint.restore, jusqu' l'arrt anticip ou jusqu' maxEpochs
+     * priodes, puis remettre dans le rseau les poids de la meilleure
+     * priode.
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param training
+     *            (Dataset), jeu d'apprentissage
+     * @param firstEpoch
+     *            (long), numro de la premire priode  apprendre
+     * @param maxEpochs
+     *            (long), nombre maximal de priodes, en comptant celles
+     *            avant firstEpoch
+     * @param batchSize
+     *            (int), nombre de cas dont les gradients sont moyenns avant
+     *            chaque modification des poids
+     * @param schedule
+     *            (LearningRateSchedule), taux d'apprentissage de chaque
+     *            priode
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     * @return (long), nombre de priodes apprises, en comptant celles avant
+     *         firstEpoch
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues ou si un point de
+     *             reprise n'a pu tre crit
+     */
+    public long train(BackpropagationNeuralNetwork network, Dataset training, long firstEpoch, long maxEpochs,
+            int batchSize, LearningRateSchedule schedule, float momentum) throws IOException {
+        long epoch = firstEpoch;
+        while (epoch < maxEpochs) {
+            network.train(training, epoch, batchSize, schedule.getLearningRate(epoch), momentum);
+            if (update(network, epoch++)) {
+                break;
+            }
+            if (checkpointer != null && epoch % checkpointInterval == 0) {
+                checkpointer.checkpoint(epoch, this);
+            }
+        }
+        restoreBest(network);
+        return epoch;
+    }
+
+    /**
+     * Fin d'une priode : valider le rseau si c'est le moment et, s'il est
+     * le meilleur jusqu'ici, figer ses poids. Une validation sans amlioration
+     * ne copie aucun poids.
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param epoch
+     *            (long), numro de la priode qui vient de se terminer
+     * @return (boolean), true s'il faut arrter l'apprentissage
+     * @throws IOException
+     *             si le jeu de validation ne peut tre lu
+     */
+    public boolean update(BackpropagationNeuralNetwork network, long epoch) throws IOException {
+        if ((epoch + 1) % interval != 0) {
+            return false;
+        }
+        if (viewed != network) {
+            view = network.view();
+            viewed = network;
+            scratch = view.newScratch();
+            output = new float[view.getOutputSize()];
+        }
+        double loss = evaluate(view, scratch, output);
+        lastLoss = loss;
+        if (best == null || loss < bestLoss - minDelta) {
+            best = network.freeze();
+            bestLoss = loss;
+            bestEpoch = epoch;
+            return false;
+        }
+        return epoch - bestEpoch >= patience;
+    }
+
+    /**
+     * Perte moyenne par cas d'un modle sur le jeu de validation, avec la
+     * mme perte que TrainingMetrics : entropie croise avec SOFTMAX en
+     * sortie, sinon la moiti de la somme des carrs des erreurs.
+     *
+     * @param model
+     *            (InferenceModel), le modle
+     * @return (double), la perte moyenne par cas
+     * @throws IOException
+     *             si le jeu de validation ne peut tre lu
+     */
+    public double evaluate(InferenceModel model) throws IOException {
+        return evaluate(model, model.newScratch(), new float[model.getOutputSize()]);
+    }
+
+    private double evaluate(InferenceModel model, float[] scratch, float[] output) throws IOException {
+        int inputSize = validation.getInputSize();
+        int outputSize = validation.getOutputSize();
+        if (model.getInputSize() != inputSize || model.getOutputSize() != outputSize) {
+            throw new IllegalArgumentException("model does not match the validation dataset");
+        }
+        Activation outputActivation = model.getActivation(model.getSizes().length - 2);
+        long samples = 0;
+        double lossSum = 0;
+        try (DataReader reader = validation.open(0)) {
+            DataChunk chunk;
+            while ((chunk = reader.next()) != null) {
+                float[] inputs = chunk.getInputs();
+                float[] targets = chunk.getTargets();
+                for (int r = 0; r < chunk.getRows(); r++) {
+                    model.predict(inputs, r * inputSize, output, 0, scratch);
+                    lossSum += BackpropagationNeuralNetwork.loss(outputActivation, output, 0, targets,
+                            r * outputSize, outputSize);
+                }
+                samples += chunk.getRows();
+            }
+        }
+        return samples == 0 ? 0 : lossSum / samples;
+    }
+
+    /**
+     * Remettre dans le rseau les poids de la meilleure priode. Sans effet
+     * avant la premire validation.
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     */
+    public void restoreBest(BackpropagationNeuralNetwork network) {
+        if (best != null) {
+            network.restore(best);
+        }
+    }
+
+    /**
+     * Oublier le meilleur modle, pour un nouvel apprentissage
+     */
+    public void reset() {
+        viewed = null;
+        view = null;
+        scratch = null;
+        output = null;
+        best = null;
+        bestLoss = Double.POSITIVE_INFINITY;
+        bestEpoch = -1;
+        lastLoss = Double.NaN;
+    }
+
+    /**
+     * Reprendre l'tat d'un point de reprise (voir Checkpoint.restore)
+     *
+     * @param best
+     *            (InferenceModel), modle fig de la meilleure priode, ou
+     *            null
+     * @param bestLoss
+     *            (double), perte de validation du meilleur modle
+     * @param bestEpoch
+     *            (long), priode du meilleur modle
+     * @param lastLoss
+     *            (double), perte de la dernire validation
+     */
+    void resume(InferenceModel best, double bestLoss, long bestEpoch, double lastLoss) {
+        this.best = best;
+        this.bestLoss = bestLoss;
+        this.bestEpoch = bestEpoch;
+        this.lastLoss = lastLoss;
+    }
+
+    /**
+     * @return (InferenceModel), modle fig de la meilleure priode, ou null
+     *         avant la premire validation
+     */
+    public InferenceModel getBestModel() {
+        return best;
+    }
+
+    /**
+     * @return (double), perte de validation du meilleur modle
+     */
+    public double getBestLoss() {
+        return bestLoss;
+    }
+
+    /**
+     * @return (long), priode du meilleur modle, -1 avant la premire
+     *         validation
+     */
+    public long getBestEpoch() {
+        return bestEpoch;
+    }
+
+    /**
+     * @return (double), perte de la dernire validation
+     */
+    public double getLastLoss() {
+        return lastLoss;
+    }
+}
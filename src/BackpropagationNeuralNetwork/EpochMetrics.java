@@ -0,0 +1,159 @@
+package BackpropagationNeuralNetwork;
+
+import java.util.Locale;
+
+/**
+ * Mesures d'une priode d'apprentissage, transmises aux MetricsSink par
+ * TrainingMetrics. Les valeurs ne changent plus aprs la cration.
+ *
+ * Avec ParallelTrainer, les temps de propagation avant et arrire sont
+ * additionns sur tous les fils d'excution : ils peuvent dpasser la dure
+ * de la priode.
+ */
+public final class EpochMetrics {
+    // Numro de la priode
+    private final long epoch;
+    // Nombre de cas appris
+    private final long samples;
+    // Somme des pertes de tous les cas
+    private final double lossSum;
+    // Dure totale de la priode
+    private final long elapsedNanos;
+    // Temps pass dans la propagation vers l'avant
+    private final long forwardNanos;
+    // Temps pass dans la rtropropagation
+    private final long backwardNanos;
+    // Temps pass  modifier les poids
+    private final long updateNanos;
+    // Norme moyenne des gradients de chaque couche, par modification
+    private final double[] gradientNorms;
+    // Norme des poids de chaque couche  la fin de la priode
+    private final double[] weightNorms;
+    // Octets allous par le fil d'excution de l'apprentissage, -1 si la JVM
+    // ne les compte pas
+    private final long allocatedBytes;
+    // Nombre de passages du ramasse-miettes pendant la priode
+    private final long gcCount;
+
+    EpochMetrics(long epoch, long samples, double lossSum, long elapsedNanos, long forwardNanos, long backwardNanos,
+            long updateNanos, double[] gradientNorms, double[] weightNorms, long allocatedBytes, long gcCount) {
+        this.epoch = epoch;
+        this.samples = samples;
+        this.lossSum = lossSum;
+        this.elapsedNanos = elapsedNanos;
+        this.forwardNanos = forwardNanos;
+        this.backwardNanos = backwardNanos;
+        this.updateNanos = updateNanos;
+        this.gradientNorms = gradientNorms;
+        this.weightNorms = weightNorms;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+    }
+
+    /**
+     * @return (long), numro de la priode
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return (long), nombre de cas appris pendant la priode
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Perte moyenne par cas, calcule avant la modification des poids :
+     * entropie croise si la couche de sortie est SOFTMAX, sinon la moiti de
+     * la somme des carrs des erreurs.
+     *
+     * @return (double), la perte moyenne
+     */
+    public double getLoss() {
+        return samples == 0 ? 0 : lossSum / samples;
+    }
+
+    /**
+     * @return (double), nombre de cas appris par seconde
+     */
+    public double getSamplesPerSecond() {
+        return elapsedNanos == 0 ? 0 : samples * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return (long), dure totale de la priode en nanosecondes
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return (long), temps de propagation vers l'avant en nanosecondes
+     */
+    public long getForwardNanos() {
+        return forwardNanos;
+    }
+
+    /**
+     * @return (long), temps de rtropropagation en nanosecondes
+     */
+    public long getBackwardNanos() {
+        return backwardNanos;
+    }
+
+    /**
+     * @return (long), temps de modification des poids en nanosecondes
+     */
+    public long getUpdateNanos() {
+        return updateNanos;
+    }
+
+    /**
+     * @return (double[]), norme euclidienne moyenne des gradients de chaque
+     *         couche, par modification des poids
+     */
+    public double[] getGradientNorms() {
+        return gradientNorms.clone();
+    }
+
+    /**
+     * @return (double[]), norme euclidienne des poids de chaque couche  la
+     *         fin de la priode
+     */
+    public double[] getWeightNorms() {
+        return weightNorms.clone();
+    }
+
+    /**
+     * @return (long), octets allous par le fil d'excution de
+     *         l'apprentissage pendant la priode, -1 si la JVM ne les compte
+     *         pas
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return (long), nombre de passages du ramasse-miettes pendant la
+     *         priode
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT,
+                "Priode #%d : perte %.6f, %.0f cas/s, avant %.1f ms, arrire %.1f ms, poids %.1f ms, %d octets allous, %d GC",
+                epoch, getLoss(), getSamplesPerSecond(), forwardNanos / 1e6, backwardNanos / 1e6, updateNanos / 1e6,
+                allocatedBytes, gcCount));
+        for (int i = 0; i < weightNorms.length; i++) {
+            builder.append(String.format(Locale.ROOT, "%n  couche %d : |gradient| %.4g, |poids| %.4g", i,
+                    gradientNorms[i], weightNorms[i]));
+        }
+        return builder.toString();
+    }
+}
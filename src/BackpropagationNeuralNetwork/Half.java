@@ -0,0 +1,75 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Conversion entre float et float16 (IEEE 754 binary16 : 1 bit de signe, 5
+ * bits d'exposant, 10 bits de mantisse), rang dans un short. Java 8 n'a pas
+ * de conversion intgre (Float.floatToFloat16 arrive avec Java 20).
+ */
+final class Half {
+    // Plus grande valeur finie d'un float16
+    static final float MAX_VALUE = 65504f;
+
+    private Half() {
+    }
+
+    /**
+     * Convertir un float16 fini en float, sans branchement : l'exposant et la
+     * mantisse sont recopis tels quels dans un float, puis la multiplication
+     * par 2^112 corrige la diffrence des biais d'exposant (127 - 15). Les
+     * float16 sous-normaux deviennent des floats sous-normaux, corrigs de la
+     * mme faon; le rsultat est exact.
+     *
+     * @param half
+     *            (short), le float16, ni infini ni NaN
+     * @return (float), sa valeur
+     */
+    static float toFloat(short half) {
+        return Float.intBitsToFloat(((half & 0x8000) << 16) | ((half & 0x7fff) << 13)) * 0x1p112f;
+    }
+
+    /**
+     * Convertir un float en float16, arrondi au plus proche,  galit vers
+     * la mantisse paire
+     *
+     * @param value
+     *            (float), la valeur
+     * @return (short), le float16 le plus proche; infini au-del de 65504
+     */
+    static short fromFloat(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7fffffff;
+        if (magnitude >= 0x7f800000) {
+            // Infini, ou NaN qui reste un NaN
+            return (short) (sign | 0x7c00 | (magnitude > 0x7f800000 ? 0x200 : 0));
+        }
+        if (magnitude >= 0x477ff000) {
+            // 65520 et plus s'arrondissent  l'infini
+            return (short) (sign | 0x7c00);
+        }
+        if (magnitude >= 0x38800000) {
+            // Normal : changer le biais de l'exposant et garder 10 bits de
+            // mantisse; une retenue passe naturellement dans l'exposant
+            int half = (magnitude - 0x38000000) >>> 13;
+            int rest = magnitude & 0x1fff;
+            if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        if (magnitude < 0x33000000) {
+            // Moins de la moiti du plus petit sous-normal
+            return (short) sign;
+        }
+        // Sous-normal : un multiple de 2^-24
+        int mantissa = (magnitude & 0x7fffff) | 0x800000;
+        int shift = 126 - (magnitude >>> 23);
+        int half = mantissa >>> shift;
+        int rest = mantissa & ((1 << shift) - 1);
+        int halfway = 1 << (shift - 1);
+        if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+}
@@ -0,0 +1,188 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Apprentissage asynchrone sans verrou ("Hogwild!") sur plusieurs coeurs.
+ *
+ * Chaque fil d'excution apprend sa propre partie des cas, un cas  la fois,
+ * comme BackpropagationNeuralNetwork.train(float[], float[], ...), avec son
+ * propre espace de travail pour les activations et les erreurs. Tous les fils
+ * modifient directement les mmes poids, sans verrou ni synchronisation :
+ * un fil peut lire des poids qu'un autre est en train de modifier, et une
+ * modification peut en craser une autre. Les critures d'un float ne sont
+ * jamais coupes en deux (JLS 17.7) : chaque poids garde toujours une valeur
+ * crite par l'un des fils. Comme chaque cas ne modifie qu'un peu les poids,
+ * ces collisions ralentissent  peine la convergence, et aucun fil n'attend
+ * jamais les autres  l'intrieur d'une priode.
+ *
+ * Le fil k apprend les cas k, k + N, k + 2N... de chaque morceau, o N est
+ * le nombre de fils. Les fils se retrouvent seulement  la fin de chaque
+ * morceau : les modifications de tous les fils sont alors visibles.
+ *
+ * Contrairement  ParallelTrainer, le rsultat dpend de l'ordonnancement des
+ * fils : deux excutions avec les mmes poids de dpart ne donnent pas les
+ * mmes poids. L'tat des optimiseurs est partag de la mme faon;
+ * MOMENTUM s'y prte le mieux, ADAM et RMSPROP fonctionnent mais leur
+ * compteur de modifications peut perdre des incrments. TrainingMetrics n'est
+ * pas pris en charge.
+ */
+public class HogwildTrainer implements AutoCloseable {
+    // Rseau entran
+    private final BackpropagationNeuralNetwork network;
+    // Fils d'excution qui apprennent les cas
+    private final ForkJoinPool pool;
+    // Un espace de travail par fil d'excution
+    private final Workspace[] workspaces;
+    // Nombre de neurones en entre du rseau
+    private final int inputSize;
+    // Nombre de neurones en sortie du rseau
+    private final int outputSize;
+
+    /**
+     * Constructeur
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau  entraner
+     * @param parallelism
+     *            (int), nombre de fils d'excution
+     */
+    public HogwildTrainer(BackpropagationNeuralNetwork network, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.network = network;
+        this.pool = new ForkJoinPool(parallelism);
+        this.inputSize = network.getLayer(0).getInputSize();
+        this.outputSize = network.getLayer(network.getLayerCount() - 1).getOutputSize();
+        this.workspaces = new Workspace[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workspaces[i] = network.newWorkspace();
+        }
+    }
+
+    /**
+     * Une priode d'apprentissage sur tous les cas.
+     *
+     * @param inputs
+     *            (float[][]), un cas en entre par ligne
+     * @param targetOutputs
+     *            (float[][]), les valeurs attendues, une ligne par cas
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    public void trainEpoch(float[][] inputs, float[][] targetOutputs, float learningRate, float momentum) {
+        int rows = inputs.length;
+        float[] inputMatrix = new float[rows * inputSize];
+        float[] targetMatrix = new float[rows * outputSize];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(inputs[r], 0, inputMatrix, r * inputSize, inputSize);
+            System.arraycopy(targetOutputs[r], 0, targetMatrix, r * outputSize, outputSize);
+        }
+        trainEpoch(inputMatrix, targetMatrix, rows, learningRate, momentum);
+    }
+
+    /**
+     * Une priode d'apprentissage sur tous les cas.
+     *
+     * @param inputs
+     *            (float[]), matrice des cas en entre [rows x inputSize]
+     * @param targetOutputs
+     *            (float[]), matrice des valeurs attendues [rows x outputSize]
+     * @param rows
+     *            (int), nombre de cas
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    public void trainEpoch(float[] inputs, float[] targetOutputs, int rows, float learningRate, float momentum) {
+        pool.invoke(new PartitionTask(inputs, targetOutputs, rows, learningRate, momentum, 0, workspaces.length));
+    }
+
+    /**
+     * Une priode d'apprentissage sur tout un jeu de donnes, lu morceau par
+     * morceau. Le morceau suivant est lu en arrire-plan si le jeu de donnes
+     * le permet.
+     *
+     * @param dataset
+     *            (Dataset), le jeu de donnes
+     * @param epoch
+     *            (long), numro de la priode, qui dtermine l'ordre des cas
+     *            d'un jeu de donnes mlang
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    public void trainEpoch(Dataset dataset, long epoch, float learningRate, float momentum) throws IOException {
+        try (DataReader reader = dataset.open(epoch)) {
+            DataChunk chunk;
+            while ((chunk = reader.next()) != null) {
+                trainEpoch(chunk.getInputs(), chunk.getTargets(), chunk.getRows(), learningRate, momentum);
+            }
+        }
+    }
+
+    /**
+     * @return (int), nombre de fils d'excution
+     */
+    public int getParallelism() {
+        return workspaces.length;
+    }
+
+    /**
+     * Arrter les fils d'excution
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Apprentissage des parties [firstPartition, lastPartition[ des cas, une
+     * partie par fil d'excution.
+     */
+    private final class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final float[] inputs;
+        private final float[] targetOutputs;
+        private final int rows;
+        private final float learningRate;
+        private final float momentum;
+        private final int firstPartition;
+        private final int lastPartition;
+
+        PartitionTask(float[] inputs, float[] targetOutputs, int rows, float learningRate, float momentum,
+                int firstPartition, int lastPartition) {
+            this.inputs = inputs;
+            this.targetOutputs = targetOutputs;
+            this.rows = rows;
+            this.learningRate = learningRate;
+            this.momentum = momentum;
+            this.firstPartition = firstPartition;
+            this.lastPartition = lastPartition;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastPartition - firstPartition == 1) {
+                Workspace workspace = workspaces[firstPartition];
+                for (int r = firstPartition; r < rows; r += workspaces.length) {
+                    network.train(workspace, inputs, r * inputSize, targetOutputs, r * outputSize, learningRate,
+                            momentum);
+                }
+                return;
+            }
+            int middle = (firstPartition + lastPartition) >>> 1;
+            invokeAll(new PartitionTask(inputs, targetOutputs, rows, learningRate, momentum, firstPartition, middle),
+                    new PartitionTask(inputs, targetOutputs, rows, learningRate, momentum, middle, lastPartition));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Recherche d'hyperparamtres : apprendre plusieurs rseaux candidats en
+ * parallle et les classer selon leur perte sur un jeu de validation.
+ *
+ * Les candidats sont limins par divisions successives ("successive
+ * halving") : tous les candidats apprennent d'abord minEpochs priodes, puis
+ * seul le meilleur tiers (1 / reduction) continue jusqu' reduction fois plus
+ * de priodes, et ainsi de suite jusqu' maxEpochs ou jusqu'au dernier
+ * candidat. Les candidats sans espoir ne cotent donc que quelques priodes.
+ *
+ * Chaque candidat est mesur aprs chaque priode et garde en mmoire ses
+ * poids de la priode o sa perte de validation tait la plus basse, comme
+ * avec EarlyStopping : sa note est cette meilleure perte, et un candidat qui
+ * ne s'amliore plus depuis patience priodes arrte son apprentissage. Une
+ * note ne peut que baisser d'une tape  l'autre : le classement par note est
+ * donc cohrent avec les liminations.
+ *
+ * Les candidats d'une mme tape sont appris en parallle par un nombre
+ * born de fils d'excution, chaque candidat dans un seul fil. Tous lisent les
+ * mmes jeux de donnes, qui ne sont jamais modifis : un jeu de donnes
+ * mlang donne le mme ordre des cas  tous les candidats pour une mme
+ * priode.
+ *
+ * Exemple :
+ *
+ * <pre>
+ * List&lt;SearchResult&gt; leaderboard = new HyperparameterSearch(training, validation).parallelism(8)
+ *         .run(new SearchSpace().hiddenSizes(4).hiddenSizes(8).learningRates(0.1f, 0.3f).grid());
+ * leaderboard.get(0).getNetwork().save(path);
+ * </pre>
+ */
+public final class HyperparameterSearch {
+    // Jeu d'apprentissage partag par tous les candidats
+    private final Dataset training;
+    // Jeu de validation partag par tous les candidats
+    private final Dataset validation;
+    // Nombre de fils d'excution
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    // Nombre de cas par modification des poids
+    private int batchSize = 1;
+    // Priodes apprises par tous les candidats avant la premire limination
+    private long minEpochs = 100;
+    // Priodes apprises au plus par un candidat
+    private long maxEpochs = BackpropagationNeuralNetwork.ITERATIONS;
+    // Facteur de rduction du nombre de candidats  chaque tape
+    private int reduction = 3;
+    // Priodes sans amlioration avant l'arrt d'un candidat, 0 pour
+    // maxEpochs
+    private long patience;
+
+    /**
+     * Constructeur
+     *
+     * @param training
+     *            (Dataset), jeu d'apprentissage
+     * @param validation
+     *            (Dataset), jeu de validation, distinct du jeu
+     *            d'apprentissage
+     */
+    public HyperparameterSearch(Dataset training, Dataset validation) {
+        if (training.getInputSize() != validation.getInputSize()
+                || training.getOutputSize() != validation.getOutputSize()) {
+            throw new IllegalArgumentException("training and validation datasets have different shapes");
+        }
+        this.training = training;
+        this.validation = validation;
+    }
+
+    /**
+     * @param parallelism
+     *            (int), nombre de candidats appris en mme temps; par dfaut
+     *            le nombre de processeurs
+     * @return (HyperparameterSearch), cette recherche
+     */
+    public HyperparameterSearch parallelism(int parallelism) {
+        this.parallelism = checkPositive("parallelism", parallelism);
+        return this;
+    }
+
+    /**
+     * @param batchSize
+     *            (int), nombre de cas dont les gradients sont moyenns avant
+     *            chaque modification des poids; 1 par dfaut
+     * @return (HyperparameterSearch), cette recherche
+     */
+    public HyperparameterSearch batchSize(int batchSize) {
+        this.batchSize = checkPositive("batchSize", batchSize);
+        return this;
+    }
+
+    /**
+     * @param minEpochs
+     *            (long), priodes apprises par tous les candidats avant la
+     *            premire limination; 100 par dfaut
+     * @param maxEpochs
+     *            (long), priodes apprises au plus par un candidat;
+     *            ITERATIONS par dfaut
+     * @return (HyperparameterSearch), cette recherche
+     */
+    public HyperparameterSearch epochs(long minEpochs, long maxEpochs) {
+        if (minEpochs < 1 || maxEpochs < minEpochs) {
+            throw new IllegalArgumentException("expected 1 <= minEpochs <= maxEpochs: " + minEpochs + ", "
+                    + maxEpochs);
+        }
+        this.minEpochs = minEpochs;
+        this.maxEpochs = maxEpochs;
+        return this;
+    }
+
+    /**
+     * @param reduction
+     *            (int), seul 1 candidat sur reduction continue  chaque
+     *            tape, qui dure reduction fois plus de priodes; 3 par
+     *            dfaut
+     * @return (HyperparameterSearch), cette recherche
+     */
+    public HyperparameterSearch reduction(int reduction) {
+        if (reduction < 2) {
+            throw new IllegalArgumentException("reduction must be at least 2: " + reduction);
+        }
+        this.reduction = reduction;
+        return this;
+    }
+
+    /**
+     * @param patience
+     *            (long), nombre de priodes sans amlioration de la perte de
+     *            validation avant l'arrt d'un candidat; par dfaut, aucun
+     *            arrt avant maxEpochs
+     * @return (HyperparameterSearch), cette recherche
+     */
+    public HyperparameterSearch patience(long patience) {
+        if (patience < 1) {
+            throw new IllegalArgumentException("patience must be positive: " + patience);
+        }
+        this.patience = patience;
+        return this;
+    }
+
+    /**
+     * Apprendre et classer les candidats
+     *
+     * @param candidates
+     *            (List), les candidats, voir SearchSpace
+     * @return (List), le classement par meilleure perte de validation
+     *         croissante. Le premier est le meilleur; son rseau contient ses
+     *         poids de la meilleure priode.
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues ou si la recherche est
+     *             interrompue
+     */
+    public List<SearchResult> run(List<Hyperparameters> candidates) throws IOException {
+        List<Trial> alive = new ArrayList<>();
+        for (Hyperparameters hyperparameters : candidates) {
+            alive.add(new Trial(hyperparameters,
+                    hyperparameters.newNetwork(training.getInputSize(), training.getOutputSize())));
+        }
+        List<SearchResult> leaderboard = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            long budget = minEpochs;
+            while (!alive.isEmpty()) {
+                long epochs = Math.min(budget, maxEpochs);
+                List<Future<Void>> futures = new ArrayList<>();
+                for (Trial trial : alive) {
+                    futures.add(executor.submit(trial.until(epochs)));
+                }
+                for (Future<Void> future : futures) {
+                    await(future);
+                }
+                alive.sort(Comparator.comparingDouble(trial -> trial.loss));
+                int keep = epochs == maxEpochs ? 0 : Math.max(1, alive.size() / reduction);
+                if (alive.size() == 1) {
+                    keep = 0;
+                }
+                // Les limins de cette tape se classent avant ceux des
+                // tapes prcdentes, dont la note est moins bonne
+                List<SearchResult> stage = new ArrayList<>();
+                for (int i = keep; i < alive.size(); i++) {
+                    Trial trial = alive.get(i);
+                    BackpropagationNeuralNetwork network = null;
+                    if (keep == 0) {
+                        network = trial.network;
+                        trial.stopping.restoreBest(network);
+                    }
+                    stage.add(new SearchResult(trial.hyperparameters, network, trial.loss, trial.epochs));
+                }
+                leaderboard.addAll(0, stage);
+                alive = new ArrayList<>(alive.subList(0, keep));
+                budget *= reduction;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return leaderboard;
+    }
+
+    private static void await(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("hyperparameter search interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static int checkPositive(String name, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Un candidat en cours d'apprentissage, modifi par un seul fil
+     * d'excution  la fois
+     */
+    private final class Trial {
+        private final Hyperparameters hyperparameters;
+        private final BackpropagationNeuralNetwork network;
+        // Meilleure priode et ses poids
+        private final EarlyStopping stopping;
+        // Priodes dj apprises
+        private long epochs;
+        // Apprentissage arrt faute d'amlioration
+        private boolean stopped;
+        // Meilleure perte de validation
+        private double loss = Double.POSITIVE_INFINITY;
+
+        Trial(Hyperparameters hyperparameters, BackpropagationNeuralNetwork network) {
+            this.hyperparameters = hyperparameters;
+            this.network = network;
+            this.stopping = new EarlyStopping(validation).patience(patience == 0 ? maxEpochs : patience);
+        }
+
+        // Continuer l'apprentissage jusqu' un total de target priodes
+        Callable<Void> until(long target) {
+            return () -> {
+                while (epochs < target && !stopped) {
+                    network.train(training, epochs, batchSize, hyperparameters.getLearningRate(),
+                            hyperparameters.getMomentum());
+                    stopped = stopping.update(network, epochs++);
+                }
+                double value = stopping.getBestLoss();
+                // Une perte NaN (divergence) se classe en dernier
+                loss = Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+                return null;
+            };
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package BackpropagationNeuralNetwork;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Un candidat d'une recherche d'hyperparamtres (voir HyperparameterSearch) :
+ * la taille des couches caches, le taux d'apprentissage, l'inertie et la
+ * graine des poids de dpart. Les valeurs ne changent plus aprs la cration.
+ */
+public final class Hyperparameters {
+    // Nombre de neurones de chaque couche cache
+    private final int[] hiddenSizes;
+    // Taux d'apprentissage
+    private final float learningRate;
+    // Inertie
+    private final float momentum;
+    // Graine des poids de dpart
+    private final long seed;
+
+    /**
+     * Constructeur
+     *
+     * @param hiddenSizes
+     *            (int[]), nombre de neurones de chaque couche cache
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie
+     * @param seed
+     *            (long), graine des poids de dpart
+     */
+    public Hyperparameters(int[] hiddenSizes, float learningRate, float momentum, long seed) {
+        this.hiddenSizes = hiddenSizes.clone();
+        this.learningRate = learningRate;
+        this.momentum = momentum;
+        this.seed = seed;
+    }
+
+    /**
+     * Crer un rseau de neurones sigmoides avec ces couches caches et des
+     * poids de dpart qui ne dpendent que de la graine
+     *
+     * @param inputSize
+     *            (int), nombre de neurones en entre
+     * @param outputSize
+     *            (int), nombre de neurones en sortie
+     * @return (BackpropagationNeuralNetwork), le nouveau rseau
+     */
+    public BackpropagationNeuralNetwork newNetwork(int inputSize, int outputSize) {
+        BackpropagationNeuralNetwork.Builder builder = BackpropagationNeuralNetwork.builder(inputSize);
+        for (int size : hiddenSizes) {
+            builder.layer(size);
+        }
+        return builder.layer(outputSize).seed(seed).build();
+    }
+
+    /**
+     * @return (int[]), nombre de neurones de chaque couche cache
+     */
+    public int[] getHiddenSizes() {
+        return hiddenSizes.clone();
+    }
+
+    /**
+     * @return (float), taux d'apprentissage
+     */
+    public float getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * @return (float), inertie
+     */
+    public float getMomentum() {
+        return momentum;
+    }
+
+    /**
+     * @return (long), graine des poids de dpart
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "caches %s, taux %g, inertie %g, graine %d", Arrays.toString(hiddenSizes),
+                learningRate, momentum, seed);
+    }
+}
@@ -0,0 +1,196 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Point d'accs HTTP d'un InferenceService, sur l'interface locale
+ * ("loopback") seulement :
+ * <ul>
+ * <li>POST /predict avec les valeurs en entre spares par des virgules,
+ * par exemple "5.1,3.5,1.4,0.2", rpond les valeurs en sortie spares par
+ * des virgules. Une requte ne contient qu'un cas : un corps plus long que
+ * ses valeurs en texte (32 caractres par valeur) est refus (413) sans tre
+ * lu en entier, un en-tte Content-Length invalide aussi (400);</li>
+ * <li>GET /metrics rpond les mesures du service (voir InferenceMetrics).</li>
+ * </ul>
+ * Les requtes HTTP ne bloquent aucun fil d'excution pendant qu'elles
+ * attendent leur lot : la rponse est crite quand le CompletableFuture du
+ * service est complt.
+ *
+ * Le serveur HTTP du JDK crit les en-ttes et le corps d'une rponse
+ * sparment : sans TCP_NODELAY, l'algorithme de Nagle retient le corps
+ * jusqu' l'accus de rception retard du client, environ 40 ms par requte.
+ * L'option vaut pour tous les HttpServer de la JVM et n'est lue qu'une fois,
+ *  la cration du premier : c'est  l'application de lancer la JVM avec
+ * "-Dsun.net.httpserver.nodelay=true", ou de fixer la proprit avant de
+ * crer le serveur (voir App).
+ */
+public final class InferenceHttpServer implements AutoCloseable {
+    // Longueur maximale d'une valeur en texte, virgule et espaces compris
+    private static final int MAX_VALUE_CHARS = 32;
+
+    // Service qui calcule les requtes
+    private final InferenceService service;
+    // Serveur HTTP du JDK
+    private final HttpServer server;
+    // Fils d'excution qui lisent les requtes et crivent les rponses
+    private final ExecutorService executor;
+    // Taille maximale du corps d'une requte /predict, un seul cas, en
+    // octets
+    private final long maxBodyBytes;
+
+    /**
+     * Constructeur : dmarre le serveur
+     *
+     * @param service
+     *            (InferenceService), le service d'infrence
+     * @param port
+     *            (int), port TCP, ou 0 pour un port libre (voir getPort)
+     * @param threads
+     *            (int), nombre de fils d'excution pour lire les requtes et
+     *            crire les rponses
+     * @throws IOException
+     *             si le port ne peut tre ouvert
+     */
+    public InferenceHttpServer(InferenceService service, int port, int threads) throws IOException {
+        this.service = service;
+        this.maxBodyBytes = (long) service.getInputSize() * MAX_VALUE_CHARS;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/predict", this::predict);
+        server.createContext("/metrics", this::metrics);
+        server.start();
+    }
+
+    /**
+     * @return (int), port TCP du serveur
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Arrter le serveur. Le service d'infrence n'est pas ferm.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void predict(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "POST only\n");
+            return;
+        }
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            long contentLength;
+            try {
+                contentLength = Long.parseLong(length.trim());
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, "invalid Content-Length: " + length + "\n");
+                return;
+            }
+            if (contentLength > maxBodyBytes) {
+                respond(exchange, 413, "request body larger than " + maxBodyBytes + " bytes\n");
+                return;
+            }
+        }
+        String body = read(exchange.getRequestBody(), maxBodyBytes);
+        if (body == null) {
+            respond(exchange, 413, "request body larger than " + maxBodyBytes + " bytes\n");
+            return;
+        }
+        CompletableFuture<float[]> future;
+        try {
+            future = service.submit(parse(body));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+            return;
+        }
+        future.whenCompleteAsync((output, failure) -> {
+            try {
+                if (failure != null) {
+                    respond(exchange, 503, failure.getMessage() + "\n");
+                } else {
+                    respond(exchange, 200, format(output));
+                }
+            } catch (IOException e) {
+                // Client dj parti
+                exchange.close();
+            }
+        }, executor);
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, service.getMetrics() + "\n");
+    }
+
+    // Valeurs spares par des virgules
+    private static float[] parse(String body) {
+        String[] parts = body.trim().split(",");
+        float[] values = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                values[i] = Float.parseFloat(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a number: " + parts[i].trim());
+            }
+        }
+        return values;
+    }
+
+    private static String format(float[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(values[i]);
+        }
+        return builder.append('\n').toString();
+    }
+
+    // Lire au plus maxBytes octets, retourne null si le corps est plus long
+    private static String read(InputStream in, long maxBytes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            if (bytes.size() + read > maxBytes) {
+                return null;
+            }
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package BackpropagationNeuralNetwork;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Mesures d'un InferenceService : nombre de requtes et de lots, taille
+ * moyenne des lots, profondeur de la file d'attente et centiles de la
+ * latence.
+ *
+ * Les latences, de submit jusqu'au rsultat, sont gardes pour les WINDOW
+ * dernires requtes : les centiles suivent la charge rcente plutt que
+ * toute la vie du service. Seul le fil d'excution qui calcule les lots
+ * crit les mesures; les lectures (JMX, toString) peuvent venir de n'importe
+ * quel fil.
+ */
+public final class InferenceMetrics implements InferenceMetricsMXBean {
+    // Nombre de latences gardes pour les centiles
+    static final int WINDOW = 8192;
+
+    // Profondeur actuelle de la file d'attente
+    private final IntSupplier queueDepth;
+    // Dernires latences en nanosecondes, en anneau
+    private final long[] latencies = new long[WINDOW];
+    // Nombre total de latences enregistres
+    private long recorded;
+    private volatile long requestCount;
+    private volatile long batchCount;
+    private volatile int maxQueueDepth;
+    // Nom JMX, null si les mesures ne sont pas enregistres
+    private ObjectName objectName;
+
+    /**
+     * Constructeur
+     *
+     * @param queueDepth
+     *            (IntSupplier), profondeur actuelle de la file d'attente
+     */
+    InferenceMetrics(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Publier ces mesures dans le serveur JMX de la plateforme, sous le nom
+     * "BackpropagationNeuralNetwork:type=InferenceMetrics,name=[name]"
+     *
+     * @param name
+     *            (String), nom qui distingue ce service des autres
+     * @return (ObjectName), le nom JMX
+     * @throws JMException
+     *             si le nom est invalide ou dj utilis
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("BackpropagationNeuralNetwork:type=InferenceMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Retirer ces mesures du serveur JMX
+     *
+     * @throws JMException
+     *             si le retrait choue
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Dbut d'un lot
+     *
+     * @param waiting
+     *            (int), nombre de requtes en attente, lot compris
+     */
+    void batchStarted(int waiting) {
+        if (waiting > maxQueueDepth) {
+            maxQueueDepth = waiting;
+        }
+    }
+
+    /**
+     * Fin d'une requte
+     *
+     * @param latencyNanos
+     *            (long), temps coul depuis submit
+     */
+    synchronized void requestCompleted(long latencyNanos) {
+        latencies[(int) (recorded % WINDOW)] = latencyNanos;
+        recorded++;
+    }
+
+    /**
+     * Fin d'un lot
+     *
+     * @param size
+     *            (int), nombre de requtes du lot
+     */
+    void batchCompleted(int size) {
+        requestCount += size;
+        batchCount++;
+    }
+
+    /**
+     * Centile de la latence des WINDOW dernires requtes
+     *
+     * @param percentile
+     *            (double), entre 0 et 100
+     * @return (double), la latence en microsecondes, 0 avant la premire
+     *         requte
+     */
+    public double getLatencyMicros(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+        }
+        long[] window;
+        synchronized (this) {
+            window = Arrays.copyOf(latencies, (int) Math.min(recorded, WINDOW));
+        }
+        if (window.length == 0) {
+            return 0;
+        }
+        Arrays.sort(window);
+        int index = Math.max(0, (int) Math.ceil(percentile / 100 * window.length) - 1);
+        return window[index] / 1000.0;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        long batches = batchCount;
+        return batches == 0 ? 0 : (double) requestCount / batches;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return getLatencyMicros(50);
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return getLatencyMicros(99);
+    }
+
+    @Override
+    public double getLatencyP999Micros() {
+        return getLatencyMicros(99.9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "requtes %d, lots %d (%.1f par lot), file %d (max %d), latence p50 %.0f s, p99 %.0f s, p99.9 %.0f s",
+                getRequestCount(), getBatchCount(), getMeanBatchSize(), getQueueDepth(), getMaxQueueDepth(),
+                getLatencyP50Micros(), getLatencyP99Micros(), getLatencyP999Micros());
+    }
+}
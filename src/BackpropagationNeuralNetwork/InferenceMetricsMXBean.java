@@ -0,0 +1,51 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Interface JMX de InferenceMetrics : file d'attente, taille des lots et
+ * latence des requtes d'un InferenceService, lisibles avec JConsole,
+ * VisualVM ou tout client JMX.
+ */
+public interface InferenceMetricsMXBean {
+
+    /**
+     * @return (long), nombre de requtes traites
+     */
+    long getRequestCount();
+
+    /**
+     * @return (long), nombre de lots calculs
+     */
+    long getBatchCount();
+
+    /**
+     * @return (double), nombre moyen de requtes par lot
+     */
+    double getMeanBatchSize();
+
+    /**
+     * @return (int), nombre de requtes en attente d'un lot
+     */
+    int getQueueDepth();
+
+    /**
+     * @return (int), plus grand nombre de requtes en attente observ au
+     *         dbut d'un lot
+     */
+    int getMaxQueueDepth();
+
+    /**
+     * @return (double), latence mdiane en microsecondes, de submit jusqu'au
+     *         rsultat
+     */
+    double getLatencyP50Micros();
+
+    /**
+     * @return (double), 99e centile de la latence en microsecondes
+     */
+    double getLatencyP99Micros();
+
+    /**
+     * @return (double), 99.9e centile de la latence en microsecondes
+     */
+    double getLatencyP999Micros();
+}
@@ -0,0 +1,290 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+
+/**
+ * Modle fig pour l'infrence seulement, obtenu avec
+ * BackpropagationNeuralNetwork.freeze().
+ *
+ * Le modle garde sa propre copie des poids et n'est jamais modifi aprs sa
+ * cration : plusieurs fils d'excution peuvent appeler predict en mme temps
+ * sans verrou, pendant que le rseau d'origine continue son apprentissage.
+ *
+ * Les valeurs intermdiaires sont calcules dans un espace de travail
+ * ("scratch") fourni par l'appelant ou,  dfaut, propre  chaque fil
+ * d'excution. Une fois cet espace cr, predict n'alloue plus rien.
+ *
+ * Les poids sont lus  travers des FloatBuffer : soit une copie en mmoire,
+ * soit directement un fichier de modle projet en mmoire (voir map), sans
+ * copie dans le tas Java. Les poids d'une copie en mmoire passent par le
+ * tableau qui porte le FloatBuffer et par Kernels, comme Layer.forward;
+ * seuls ceux d'un modle projet sont lus un  un  travers le FloatBuffer.
+ */
+public final class InferenceModel {
+    // Nombre de neurones de chaque niveau : entre, couches caches, sortie
+    private final int[] sizes;
+    // Poids de chaque couche, [(1 + entres) x sorties], biais en dernier
+    private final FloatBuffer[] weights;
+    // Tableau qui porte les poids de chaque couche et dbut des poids dans
+    // ce tableau, null pour un modle projet en mmoire
+    private final float[][] arrays;
+    private final int[] arrayOffsets;
+    // Fonction d'activation de chaque couche
+    private final Activation[] activations;
+    // Taille de l'espace de travail ncessaire  predict
+    private final int scratchSize;
+    // Espace de travail par fil d'excution pour predict(float[], float[])
+    private final ThreadLocal<float[]> threadScratch;
+
+    /**
+     * Constructeur
+     *
+     * @param sizes
+     *            (int[]), nombre de neurones de chaque niveau, de l'entre
+     *            vers la sortie
+     * @param weights
+     *            (float[][]), poids de chaque couche, copis
+     * @param activations
+     *            (Activation[]), fonction d'activation de chaque couche
+     */
+    InferenceModel(int[] sizes, float[][] weights, Activation[] activations) {
+        this(sizes, copy(weights), activations);
+    }
+
+    /**
+     * Constructeur
+     *
+     * @param sizes
+     *            (int[]), nombre de neurones de chaque niveau, de l'entre
+     *            vers la sortie
+     * @param weights
+     *            (FloatBuffer[]), poids de chaque couche, utiliss tels quels
+     *            et qui ne doivent plus tre modifis
+     * @param activations
+     *            (Activation[]), fonction d'activation de chaque couche
+     */
+    InferenceModel(int[] sizes, FloatBuffer[] weights, Activation[] activations) {
+        this.sizes = sizes.clone();
+        this.weights = weights;
+        this.activations = activations.clone();
+        this.arrays = new float[weights.length][];
+        this.arrayOffsets = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i].hasArray()) {
+                arrays[i] = weights[i].array();
+                arrayOffsets[i] = weights[i].arrayOffset();
+            }
+        }
+        int widest = 0;
+        for (int i = 0; i < weights.length; i++) {
+            widest = Math.max(widest, sizes[i + 1]);
+        }
+        // Deux tampons en alternance : entres et sorties de la couche
+        // courante
+        this.scratchSize = 2 * widest;
+        this.threadScratch = ThreadLocal.withInitial(this::newScratch);
+    }
+
+    /**
+     * Classer un cas avec l'espace de travail du fil d'excution courant.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @param output
+     *            (float[]), reoit les valeurs d'activation en sortie
+     */
+    public void predict(float[] input, float[] output) {
+        predict(input, output, threadScratch.get());
+    }
+
+    /**
+     * Classer un cas avec un espace de travail fourni par l'appelant. Utile
+     * avec un trs grand nombre de fils d'excution de courte dure (les
+     * "virtual threads" par exemple), pour lesquels un espace par fil
+     * n'apporte rien.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @param output
+     *            (float[]), reoit les valeurs d'activation en sortie
+     * @param scratch
+     *            (float[]), espace de travail cr par newScratch(), utilis
+     *            par un seul fil d'excution  la fois
+     */
+    public void predict(float[] input, float[] output, float[] scratch) {
+        predict(input, 0, output, 0, scratch);
+    }
+
+    /**
+     * Classer un cas rang dans une matrice, par exemple une ligne d'un
+     * DataChunk, sans le copier.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @param inputOffset
+     *            (int), dbut du cas dans input
+     * @param output
+     *            (float[]), reoit les valeurs d'activation en sortie
+     * @param outputOffset
+     *            (int), dbut des valeurs en sortie dans output
+     * @param scratch
+     *            (float[]), espace de travail cr par newScratch()
+     */
+    void predict(float[] input, int inputOffset, float[] output, int outputOffset, float[] scratch) {
+        float[] current = input;
+        int currentOffset = inputOffset;
+        int half = scratchSize / 2;
+        int last = weights.length - 1;
+        for (int l = 0; l <= last; l++) {
+            int inputSize = sizes[l];
+            int outputSize = sizes[l + 1];
+            int stride = inputSize + 1;
+            // La dernire couche crit directement dans output, les autres
+            // alternent entre les deux moitis de l'espace de travail
+            float[] next = l == last ? output : scratch;
+            int nextOffset = l == last ? outputOffset : (l % 2) * half;
+            float[] array = arrays[l];
+            if (array != null) {
+                // Poids dans le tas : mme calcul que Layer.forward
+                int offset = arrayOffsets[l];
+                for (int i = 0; i < outputSize; i++) {
+                    float sum = Kernels.INSTANCE.dot(array, offset, current, currentOffset, inputSize);
+                    next[nextOffset + i] = sum + array[offset + inputSize];
+                    offset += stride;
+                }
+            } else {
+                FloatBuffer layerWeights = weights[l];
+                int offset = 0;
+                for (int i = 0; i < outputSize; i++) {
+                    float sum = layerWeights.get(offset + inputSize);
+                    for (int j = 0; j < inputSize; j++) {
+                        sum += layerWeights.get(offset + j) * current[currentOffset + j];
+                    }
+                    next[nextOffset + i] = sum;
+                    offset += stride;
+                }
+            }
+            activations[l].activate(next, nextOffset, outputSize);
+            current = next;
+            currentOffset = nextOffset;
+        }
+    }
+
+    /**
+     * Classer un cas. Pratique, mais alloue le tableau rsultat.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @return (float[]), les valeurs d'activation en sortie
+     */
+    public float[] predict(float[] input) {
+        float[] output = new float[getOutputSize()];
+        predict(input, output);
+        return output;
+    }
+
+    /**
+     * Quantifier les poids de ce modle pour une infrence plus compacte (voir
+     * QuantizedModel). Ce modle n'est pas modifi.
+     *
+     * @param format
+     *            (QuantizedModel.Format), format des poids quantifis
+     * @return (QuantizedModel), le modle quantifi
+     */
+    public QuantizedModel quantize(QuantizedModel.Format format) {
+        return QuantizedModel.quantize(this, format);
+    }
+
+    /**
+     * Mmoire occupe par les poids et les biais, pour comparer avec
+     * QuantizedModel.getWeightBytes()
+     *
+     * @return (long), nombre d'octets
+     */
+    public long getWeightBytes() {
+        long total = 0;
+        for (FloatBuffer buffer : weights) {
+            total += 4L * buffer.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * Ouvrir un fichier de modle (voir ModelFile) en le projetant en mmoire.
+     * Les poids sont lus directement dans le cache de pages du systme, sans
+     * copie dans le tas Java, et sont partags par tous les processus qui
+     * projettent le mme fichier.
+     *
+     * @param path
+     *            (Path), le fichier de modle
+     * @return (InferenceModel), le modle
+     * @throws IOException
+     *             si le fichier ne peut tre lu ou n'est pas un modle valide
+     */
+    public static InferenceModel map(Path path) throws IOException {
+        return ModelFile.map(path);
+    }
+
+    /**
+     * Crer un espace de travail pour predict(float[], float[], float[])
+     *
+     * @return (float[]), un nouvel espace de travail
+     */
+    public float[] newScratch() {
+        return new float[scratchSize];
+    }
+
+    /**
+     * @return (int[]), nombre de neurones de chaque niveau, de l'entre vers
+     *         la sortie
+     */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * Poids d'une couche, en lecture seule
+     *
+     * @param index
+     *            (int), index de la couche
+     * @return (FloatBuffer), poids [(1 + entres) x sorties]
+     */
+    FloatBuffer getWeights(int index) {
+        return weights[index].duplicate();
+    }
+
+    /**
+     * Fonction d'activation d'une couche
+     *
+     * @param index
+     *            (int), index de la couche
+     * @return (Activation), la fonction d'activation
+     */
+    Activation getActivation(int index) {
+        return activations[index];
+    }
+
+    /**
+     * @return (int), nombre de neurones en entre
+     */
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    /**
+     * @return (int), nombre de neurones en sortie
+     */
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    private static FloatBuffer[] copy(float[][] weights) {
+        FloatBuffer[] buffers = new FloatBuffer[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            buffers[i] = FloatBuffer.wrap(weights[i].clone());
+        }
+        return buffers;
+    }
+}
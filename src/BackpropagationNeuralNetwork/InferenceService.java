@@ -0,0 +1,308 @@
+package BackpropagationNeuralNetwork;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service d'infrence qui regroupe les requtes concurrentes en petits lots
+ * ("micro-batching").
+ *
+ * Chaque appel  submit met un cas dans une file d'attente et retourne
+ * aussitt un CompletableFuture. Un seul fil d'excution prend les requtes
+ * de la file et les calcule par lots : un lot est lanc ds qu'il contient
+ * maxBatchSize requtes, ou quand la plus ancienne requte du lot attend
+ * depuis maxWaitMicros. Le lot entier passe en une seule fois dans chaque
+ * couche, comme runBatch : chaque poids est lu une fois par lot plutt
+ * qu'une fois par requte. Sous faible charge, une requte seule n'attend
+ * jamais plus de maxWaitMicros; sous forte charge, les lots se remplissent
+ * sans attendre.
+ *
+ * Le service copie toujours les poids : ils sont transposs une fois pour
+ * toutes dans le tas Java  la cration du service, pour la multiplication
+ * de matrices des lots. Mme un modle projet en mmoire avec
+ * InferenceModel.map est copi : le service occupe autant de tas que les
+ * poids, et ne profite pas du partage du fichier projet entre processus.
+ * Pour servir un gros modle projet sans le copier, appeler directement
+ * InferenceModel.predict depuis plusieurs fils d'excution.
+ *
+ * Les CompletableFuture sont complts dans le fil d'excution des lots : un
+ * traitement long du rsultat doit passer par les variantes "Async"
+ * (thenApplyAsync...) pour ne pas retarder les lots suivants.
+ *
+ * Exemple :
+ *
+ * <pre>
+ * try (InferenceService service = new InferenceService(network.freeze(), 32, 500)) {
+ *     float[] output = service.submit(input).get();
+ * }
+ * </pre>
+ */
+public final class InferenceService implements AutoCloseable {
+    // Requte qui arrte le fil d'excution des lots
+    private static final Request CLOSE = new Request(null, 0);
+
+    // Nombre de neurones de chaque niveau : entre, couches caches, sortie
+    private final int[] sizes;
+    // Poids transposs de chaque couche, [entres x sorties], sans les biais
+    private final float[][] transposedWeights;
+    // Biais de chaque couche
+    private final float[][] biases;
+    // Fonction d'activation de chaque couche
+    private final Activation[] activations;
+    // Nombre maximal de requtes par lot
+    private final int maxBatchSize;
+    // Attente maximale de la plus ancienne requte d'un lot
+    private final long maxWaitNanos;
+    // Requtes en attente
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    // Fermeture : submit garde le verrou de lecture, close celui d'criture
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+    // Mesures du service
+    private final InferenceMetrics metrics;
+    // Fil d'excution des lots
+    private final Thread dispatcher;
+
+    // Matrices de travail, seulement dans le fil d'excution des lots : deux
+    // tampons en alternance [maxBatchSize x plus grand niveau]
+    private final float[] first;
+    private final float[] second;
+    // Requtes du lot en cours
+    private final Request[] batch;
+
+    /**
+     * Constructeur : dmarre le fil d'excution des lots
+     *
+     * @param model
+     *            (InferenceModel), le modle, dont les poids sont copis
+     * @param maxBatchSize
+     *            (int), nombre maximal de requtes par lot
+     * @param maxWaitMicros
+     *            (long), attente maximale d'une requte avant le lancement
+     *            de son lot, en microsecondes
+     */
+    public InferenceService(InferenceModel model, int maxBatchSize, long maxWaitMicros) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        if (maxWaitMicros < 0) {
+            throw new IllegalArgumentException("maxWaitMicros must not be negative: " + maxWaitMicros);
+        }
+        this.sizes = model.getSizes();
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        int layerCount = sizes.length - 1;
+        this.transposedWeights = new float[layerCount][];
+        this.biases = new float[layerCount][];
+        this.activations = new Activation[layerCount];
+        int widest = 0;
+        for (int l = 0; l < layerCount; l++) {
+            int inputSize = sizes[l];
+            int outputSize = sizes[l + 1];
+            float[] weights = new float[(inputSize + 1) * outputSize];
+            FloatBuffer buffer = model.getWeights(l);
+            buffer.get(weights);
+            transposedWeights[l] = new float[inputSize * outputSize];
+            Matrix.transpose(outputSize, inputSize, weights, inputSize + 1, transposedWeights[l]);
+            biases[l] = new float[outputSize];
+            for (int i = 0; i < outputSize; i++) {
+                biases[l][i] = weights[i * (inputSize + 1) + inputSize];
+            }
+            activations[l] = model.getActivation(l);
+        }
+        for (int size : sizes) {
+            widest = Math.max(widest, size);
+        }
+        this.first = new float[maxBatchSize * widest];
+        this.second = new float[maxBatchSize * widest];
+        this.batch = new Request[maxBatchSize];
+        this.metrics = new InferenceMetrics(queue::size);
+        this.dispatcher = new Thread(this::dispatch, "InferenceService");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Classer un cas. Le cas est copi : le tableau peut tre rutilis ds
+     * le retour.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @return (CompletableFuture), les valeurs d'activation en sortie, ou une
+     *         IllegalStateException si le service est ferm
+     */
+    public CompletableFuture<float[]> submit(float[] input) {
+        if (input.length != sizes[0]) {
+            throw new IllegalArgumentException("expected " + sizes[0] + " inputs but got " + input.length);
+        }
+        Request request = new Request(input.clone(), System.nanoTime());
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                request.future.completeExceptionally(new IllegalStateException("inference service is closed"));
+            } else {
+                queue.add(request);
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return request.future;
+    }
+
+    /**
+     * @return (InferenceMetrics), les mesures du service
+     */
+    public InferenceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return (int), nombre de neurones en entre
+     */
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    /**
+     * @return (int), nombre de neurones en sortie
+     */
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * Refuser les nouvelles requtes, calculer celles dj en attente puis
+     * arrter le fil d'excution des lots
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Boucle du fil d'excution des lots
+    private void dispatch() {
+        boolean closing = false;
+        while (!closing) {
+            Request request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                // Seul close arrte ce fil d'excution
+                continue;
+            }
+            if (request == CLOSE) {
+                break;
+            }
+            metrics.batchStarted(queue.size() + 1);
+            int size = 0;
+            batch[size++] = request;
+            long deadline = request.submitNanos + maxWaitNanos;
+            while (size < maxBatchSize) {
+                Request next = queue.poll();
+                if (next == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                }
+                if (next == CLOSE) {
+                    closing = true;
+                    break;
+                }
+                batch[size++] = next;
+            }
+            run(size);
+        }
+        // Aprs CLOSE, plus rien n'entre dans la file
+        Request request;
+        while ((request = queue.poll()) != null) {
+            batch[0] = request;
+            run(1);
+        }
+    }
+
+    // Calculer le lot en cours et complter ses requtes
+    private void run(int rows) {
+        try {
+            int inputSize = sizes[0];
+            for (int r = 0; r < rows; r++) {
+                System.arraycopy(batch[r].input, 0, first, r * inputSize, inputSize);
+            }
+            float[] current = first;
+            float[] next = second;
+            for (int l = 0; l < transposedWeights.length; l++) {
+                int layerInputs = sizes[l];
+                int layerOutputs = sizes[l + 1];
+                // Chaque somme commence par le biais
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(biases[l], 0, next, r * layerOutputs, layerOutputs);
+                }
+                Matrix.multiply(rows, layerOutputs, layerInputs, current, layerInputs, transposedWeights[l],
+                        layerOutputs, next, layerOutputs);
+                for (int r = 0; r < rows; r++) {
+                    activations[l].activate(next, r * layerOutputs, layerOutputs);
+                }
+                float[] swap = current;
+                current = next;
+                next = swap;
+            }
+            int outputSize = getOutputSize();
+            for (int r = 0; r < rows; r++) {
+                float[] output = new float[outputSize];
+                System.arraycopy(current, r * outputSize, output, 0, outputSize);
+                Request request = batch[r];
+                request.future.complete(output);
+                metrics.requestCompleted(System.nanoTime() - request.submitNanos);
+            }
+        } catch (RuntimeException | Error e) {
+            for (int r = 0; r < rows; r++) {
+                batch[r].future.completeExceptionally(e);
+            }
+        } finally {
+            metrics.batchCompleted(rows);
+            for (int r = 0; r < rows; r++) {
+                batch[r] = null;
+            }
+        }
+    }
+
+    /**
+     * Une requte en attente
+     */
+    private static final class Request {
+        final float[] input;
+        final long submitNanos;
+        final CompletableFuture<float[]> future = new CompletableFuture<>();
+
+        Request(float[] input, long submitNanos) {
+            this.input = input;
+            this.submitNanos = submitNanos;
+        }
+    }
+}
@@ -1,22 +1,37 @@
 package BackpropagationNeuralNetwork;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
-import java.util.Random;
 
 /**
  * Couche d'un rseau de neurones
  */
 public class Layer {
+    // En dessous de ce nombre de cas par lot, on ne transpose pas les poids :
+    // les produits scalaires directs cotent moins cher que la transposition
+    private static final int TRANSPOSE_THRESHOLD = 8;
+    // Nombre de neurones en entre (sans le biais)
+    private final int inputSize;
+    // Nombre de neurones en sortie
+    private final int outputSize;
     // Rsultats calculs
     private float[] output;
     // Valeurs en entre
     private float[] input;
     // Poids des connexions
     private float[] weights;
-    // Diffrences/Changements pour "duquer" les neurones
-    private float[] deltaWeights;
-    // Gnrateur de nombres alatoires
-    private Random randomGenerator;
+    // Rgle de modification des poids
+    private Optimizer optimizer = Optimizers.MOMENTUM;
+    // tat de l'optimiseur, des tableaux de la taille des poids. Avec
+    // MOMENTUM, les diffrences/changements pour "duquer" les neurones
+    private float[][] optimizerState;
+    // Nombre de modifications des poids depuis le choix de l'optimiseur
+    private long steps;
+    // Gradients d'un cas pour train, avec les optimiseurs autres que
+    // MOMENTUM
+    private float[] sampleGradients;
+    // Fonction d'activation des neurones en sortie
+    private final Activation activation;
 
     /**
      * Constructeur
@@ -27,27 +42,96 @@ public class Layer {
      *            (int), nombre de neurones en sortie
      */
     public Layer(int inputSize, int outputSize) {
+        this(inputSize, outputSize, Activations.SIGMOID);
+    }
+
+    /**
+     * Constructeur
+     * 
+     * @param inputSize
+     *            (int), nombre de neurones en entre
+     * @param outputSize
+     *            (int), nombre de neurones en sortie
+     * @param activation
+     *            (Activation), fonction d'activation des neurones en sortie
+     */
+    public Layer(int inputSize, int outputSize, Activation activation) {
+        this(inputSize, outputSize, activation, WeightInitializers.UNIFORM, WeightInitializers.randomSeed());
+    }
+
+    /**
+     * Constructeur avec des poids de dpart reproductibles
+     * 
+     * @param inputSize
+     *            (int), nombre de neurones en entre
+     * @param outputSize
+     *            (int), nombre de neurones en sortie
+     * @param activation
+     *            (Activation), fonction d'activation des neurones en sortie
+     * @param initializer
+     *            (WeightInitializer), rgle des poids de dpart, voir
+     *            WeightInitializers
+     * @param seed
+     *            (long), graine des poids de dpart
+     */
+    public Layer(int inputSize, int outputSize, Activation activation, WeightInitializer initializer, long seed) {
+        // il y a autant de connexions que le produit des neurones en entre
+        // (+1) et celles en sortie
+        this(inputSize, outputSize, activation, new float[(1 + inputSize) * outputSize]);
+        initWeights(initializer, seed);
+    }
+
+    /**
+     * Constructeur avec des poids dj connus, par exemple lus dans un fichier
+     * de modle : aucun poids de dpart n'est tir
+     * 
+     * @param inputSize
+     *            (int), nombre de neurones en entre
+     * @param outputSize
+     *            (int), nombre de neurones en sortie
+     * @param activation
+     *            (Activation), fonction d'activation des neurones en sortie
+     * @param weights
+     *            (float[]), poids [(1 + inputSize) x outputSize], rangs
+     *            comme getWeights() et utiliss tels quels, sans copie
+     */
+    Layer(int inputSize, int outputSize, Activation activation, float[] weights) {
+        if (weights.length != (1 + inputSize) * outputSize) {
+            throw new IllegalArgumentException("expected " + (1 + inputSize) * outputSize + " weights, got "
+                    + weights.length);
+        }
+        this.activation = activation;
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
         output = new float[outputSize];
         // liste des neurones en entre + le neurone de biais "bias", voir
         // dfinition.
         input = new float[inputSize + 1];
-        // il y a autant de connexions que le produit des neurones en entre
-        // (+1) et celles en sortie
-        weights = new float[(1 + inputSize) * outputSize];
-        deltaWeights = new float[weights.length];
-        this.randomGenerator = new Random();
-        initWeights();
+        this.weights = weights;
+        optimizerState = new float[][] { new float[weights.length] };
     }
 
     /**
      * Initialiser le poids des connexions avec des valeurs alatoires entre
      * {-2,2}, parce que c'est l'intervalle habituellement utilise par les
-     * scientifiques...
+     * scientifiques... Les poids changent  chaque appel.
      */
     public void initWeights() {
-        for (int i = 0; i < weights.length; i++) {
-            weights[i] = (randomGenerator.nextFloat() - 0.5f) * 4f;
-        }
+        initWeights(WeightInitializers.UNIFORM, WeightInitializers.randomSeed());
+    }
+
+    /**
+     * Initialiser le poids des connexions avec une rgle et une graine, pour
+     * obtenir les mmes poids d'une excution  l'autre
+     * 
+     * @param initializer
+     *            (WeightInitializer), rgle des poids de dpart, voir
+     *            WeightInitializers
+     * @param seed
+     *            (long), graine des poids de dpart
+     */
+    public void initWeights(WeightInitializer initializer, long seed) {
+        initializer.initialize(weights, inputSize, outputSize, seed);
     }
 
     /**
@@ -67,13 +151,11 @@ public class Layer {
         // Pour chacune des valeurs d'entre...
         for (int i = 0; i < output.length; i++) {
             // Faire la somme des produits du poids des connexions...
-            for (int j = 0; j < input.length; j++) {
-                output[i] += weights[offset + j] * input[j];
-            }
-            // Lancer la fonction d'activation pour cette somme...
-            output[i] = BackpropagationNeuralNetwork.activationFunction(output[i]);
+            output[i] = Kernels.INSTANCE.dot(weights, offset, input, 0, input.length);
             offset += input.length;
         }
+        // Lancer la fonction d'activation pour ces sommes...
+        activation.activate(output, 0, output.length);
         return Arrays.copyOf(output, output.length);
     }
 
@@ -94,23 +176,343 @@ public class Layer {
     public float[] train(float[] error, float learningRate, float momentum) {
         int offset = 0;
         float[] nextError = new float[input.length];
-        for (int i = 0; i < output.length; i++) {
-            // Une seule couche cache, son delta ne change pas.
-            float delta = error[i] * BackpropagationNeuralNetwork.activationFunctionBackPropagation(output[i]);
-            for (int j = 0; j < input.length; j++) {
-                // index des poids de connexion
-                int previousWeightIndex = offset + j;
-                nextError[j] = nextError[j] + weights[previousWeightIndex] * delta;
-                // Calculer le gradient (la variation)
-                float gradient = input[j] * delta;
-                // Calculer le changement du poids  un moment t = gradient *
-                // learningRate + momentum * le changement du poids de
-                // l'itration prcdente
-                weights[previousWeightIndex] += gradient * learningRate + momentum * deltaWeights[previousWeightIndex];
-                deltaWeights[previousWeightIndex] = gradient;
+        float[] deltas = Arrays.copyOf(error, output.length);
+        activation.backpropagate(output, 0, deltas, 0, output.length);
+        if (optimizer != Optimizers.MOMENTUM) {
+            if (sampleGradients == null) {
+                sampleGradients = new float[weights.length];
             }
+            backward(input, 0, deltas, 0, nextError, 0, sampleGradients, learningRate, momentum);
+            return nextError;
+        }
+        float[] deltaWeights = optimizerState[0];
+        for (int i = 0; i < output.length; i++) {
+            // Propager l'erreur, puis calculer le changement du poids  un
+            // moment t = gradient * learningRate + momentum * le changement
+            // du poids de l'itration prcdente
+            Kernels.INSTANCE.backward(weights, offset, deltaWeights, input, 0, nextError, 0, deltas[i],
+                    input.length, learningRate, momentum);
             offset += input.length;
         }
         return nextError;
     }
+
+    /**
+     * Lancer les calculs pour un cas dans l'espace de travail d'un rseau,
+     * sans allocation ni modification de l'tat de la couche.
+     * 
+     * @param arena
+     *            (float[]), espace de travail contenant les entres et
+     *            recevant les sorties
+     * @param inputOffset
+     *            (int), dbut des valeurs en entre dans arena
+     * @param outputOffset
+     *            (int), dbut des valeurs rsultantes dans arena
+     */
+    void forward(float[] arena, int inputOffset, int outputOffset) {
+        int offset = 0;
+        for (int i = 0; i < outputSize; i++) {
+            float sum = Kernels.INSTANCE.dot(weights, offset, arena, inputOffset, inputSize);
+            // bias
+            sum += weights[offset + inputSize];
+            arena[outputOffset + i] = sum;
+            offset += inputSize + 1;
+        }
+        activation.activate(arena, outputOffset, outputSize);
+    }
+
+    /**
+     * Apprentissage par rtropropagation d'un cas dans l'espace de travail
+     * d'un rseau : les poids sont modifis au fur et  mesure, comme dans
+     * train, mais sans allocation.
+     * 
+     * @param arena
+     *            (float[]), espace de travail du rseau
+     * @param inputOffset
+     *            (int), dbut des valeurs en entre dans arena
+     * @param outputOffset
+     *            (int), dbut des valeurs calcules par forward dans arena
+     * @param errorOffset
+     *            (int), dbut des erreurs sur les sorties dans arena,
+     *            remplaces par les deltas
+     * @param nextErrorOffset
+     *            (int), dbut des erreurs sur les entres  calculer dans
+     *            arena, ou -1 pour la premire couche
+     * @param gradients
+     *            (float[]), espace de travail de la taille des poids pour les
+     *            optimiseurs autres que MOMENTUM, sinon null
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    void backward(float[] arena, int inputOffset, int outputOffset, int errorOffset, int nextErrorOffset,
+            float[] gradients, float learningRate, float momentum) {
+        float[] nextErrors = null;
+        if (nextErrorOffset >= 0) {
+            nextErrors = arena;
+            Arrays.fill(arena, nextErrorOffset, nextErrorOffset + inputSize, 0f);
+        }
+        activation.backpropagate(arena, outputOffset, arena, errorOffset, outputSize);
+        if (optimizer != Optimizers.MOMENTUM) {
+            backward(arena, inputOffset, arena, errorOffset, nextErrors, nextErrorOffset, gradients, learningRate,
+                    momentum);
+            return;
+        }
+        float[] deltaWeights = optimizerState[0];
+        int offset = 0;
+        for (int i = 0; i < outputSize; i++) {
+            float delta = arena[errorOffset + i];
+            Kernels.INSTANCE.backward(weights, offset, deltaWeights, arena, inputOffset, nextErrors,
+                    nextErrorOffset, delta, inputSize, learningRate, momentum);
+            // bias, dont l'entre vaut toujours 1
+            int biasIndex = offset + inputSize;
+            weights[biasIndex] += delta * learningRate + momentum * deltaWeights[biasIndex];
+            deltaWeights[biasIndex] = delta;
+            offset += inputSize + 1;
+        }
+    }
+
+    /**
+     * Rtropropagation d'un cas avec un optimiseur qui a besoin de tous les
+     * gradients de la couche : les erreurs sont propages avec les poids
+     * d'avant la modification, puis l'optimiseur modifie tous les poids d'un
+     * seul passage.
+     */
+    private void backward(float[] inputs, int inputOffset, float[] deltas, int deltaOffset, float[] nextErrors,
+            int nextErrorOffset, float[] gradients, float learningRate, float momentum) {
+        int offset = 0;
+        for (int i = 0; i < outputSize; i++) {
+            float delta = deltas[deltaOffset + i];
+            for (int j = 0; j < inputSize; j++) {
+                if (nextErrors != null) {
+                    nextErrors[nextErrorOffset + j] += weights[offset + j] * delta;
+                }
+                gradients[offset + j] = inputs[inputOffset + j] * delta;
+            }
+            // bias, dont l'entre vaut toujours 1
+            gradients[offset + inputSize] = delta;
+            offset += inputSize + 1;
+        }
+        optimizer.update(weights, optimizerState, gradients, weights.length, learningRate, momentum, ++steps);
+    }
+
+    /**
+     * Lancer les calculs pour un lot complet de cas. Chaque ligne de la
+     * matrice en entre est un cas et produit une ligne dans la matrice en
+     * sortie. Aucun tat de la couche n'est modifi.
+     * 
+     * @param inputs
+     *            (float[]), matrice des valeurs en entre [rows x inputSize]
+     * @param rows
+     *            (int), nombre de cas dans le lot
+     * @param outputs
+     *            (float[]), matrice des valeurs rsultantes [rows x
+     *            outputSize]
+     * @param transposedWeights
+     *            (float[]), espace de travail pour les poids transposs
+     *            [inputSize x outputSize]
+     */
+    void runBatch(float[] inputs, int rows, float[] outputs, float[] transposedWeights) {
+        int stride = inputSize + 1;
+        // Chaque somme commence par le poids du biais
+        for (int r = 0; r < rows; r++) {
+            int row = r * outputSize;
+            for (int i = 0; i < outputSize; i++) {
+                outputs[row + i] = weights[i * stride + inputSize];
+            }
+        }
+        if (rows < TRANSPOSE_THRESHOLD) {
+            Matrix.multiplyTransposedB(rows, outputSize, inputSize, inputs, inputSize, weights, stride, outputs,
+                    outputSize);
+        } else {
+            Matrix.transpose(outputSize, inputSize, weights, stride, transposedWeights);
+            Matrix.multiply(rows, outputSize, inputSize, inputs, inputSize, transposedWeights, outputSize, outputs,
+                    outputSize);
+        }
+        for (int r = 0; r < rows; r++) {
+            activation.activate(outputs, r * outputSize, outputSize);
+        }
+    }
+
+    /**
+     * Rtropropagation d'un lot complet sans modifier les poids : les
+     * gradients de tous les cas sont additionns et l'erreur est propage vers
+     * la couche prcdente.
+     * 
+     * @param inputs
+     *            (float[]), matrice des valeurs en entre du lot [rows x
+     *            inputSize]
+     * @param outputs
+     *            (float[]), matrice des valeurs calcules par runBatch [rows x
+     *            outputSize]
+     * @param errors
+     *            (float[]), matrice des erreurs sur les sorties [rows x
+     *            outputSize], remplaces par les deltas
+     * @param rows
+     *            (int), nombre de cas dans le lot
+     * @param gradients
+     *            (float[]), somme des gradients [(1 + inputSize) x
+     *            outputSize], accumule
+     * @param nextErrors
+     *            (float[]), matrice des erreurs sur les entres [rows x
+     *            inputSize], ou null pour la premire couche
+     */
+    void backwardBatch(float[] inputs, float[] outputs, float[] errors, int rows, float[] gradients,
+            float[] nextErrors) {
+        int stride = inputSize + 1;
+        for (int r = 0; r < rows; r++) {
+            activation.backpropagate(outputs, r * outputSize, errors, r * outputSize, outputSize);
+        }
+        // gradients += transpose(deltas) . entres
+        Matrix.multiplyTransposedA(outputSize, inputSize, rows, errors, outputSize, inputs, inputSize, gradients,
+                stride);
+        // Le neurone de biais vaut toujours 1
+        for (int r = 0; r < rows; r++) {
+            int row = r * outputSize;
+            for (int i = 0; i < outputSize; i++) {
+                gradients[i * stride + inputSize] += errors[row + i];
+            }
+        }
+        if (nextErrors != null) {
+            Arrays.fill(nextErrors, 0, rows * inputSize, 0f);
+            // erreurs prcdentes = deltas . poids (sans le biais)
+            Matrix.multiply(rows, inputSize, outputSize, errors, outputSize, weights, stride, nextErrors, inputSize);
+        }
+    }
+
+    /**
+     * Modifier les poids avec la moyenne des gradients d'un lot : le pas ne
+     * grandit pas avec la taille du lot, et un lot d'un cas donne exactement
+     * la mme modification qu'un apprentissage cas par cas.
+     * 
+     * @param gradients
+     *            (float[]), somme des gradients calcule par backwardBatch,
+     *            remplace par leur moyenne
+     * @param rows
+     *            (int), nombre de cas dont les gradients sont additionns
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    void applyGradients(float[] gradients, int rows, float learningRate, float momentum) {
+        if (rows > 1) {
+            float scale = 1f / rows;
+            for (int i = 0; i < weights.length; i++) {
+                gradients[i] *= scale;
+            }
+        }
+        optimizer.update(weights, optimizerState, gradients, weights.length, learningRate, momentum, ++steps);
+    }
+
+    /**
+     * Choisir la rgle de modification des poids. L'tat de l'optimiseur
+     * repart de zro.
+     * 
+     * @param optimizer
+     *            (Optimizer), l'optimiseur
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        if (optimizer == null) {
+            throw new IllegalArgumentException("optimizer must not be null");
+        }
+        float[][] state = new float[optimizer.getStateCount()][];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = new float[weights.length];
+        }
+        this.optimizer = optimizer;
+        this.optimizerState = state;
+        this.steps = 0;
+    }
+
+    /**
+     * @return (Optimizer), la rgle de modification des poids
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * tat de l'optimiseur. Les tableaux retourns ne sont pas des copies.
+     * 
+     * @return (float[][]), getOptimizer().getStateCount() tableaux de la
+     *         taille des poids
+     */
+    float[][] getOptimizerState() {
+        return optimizerState;
+    }
+
+    /**
+     * @return (long), nombre de modifications des poids depuis le choix de
+     *         l'optimiseur
+     */
+    long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Reprendre le compteur de modifications d'une sauvegarde (voir
+     * Checkpoint)
+     * 
+     * @param steps
+     *            (long), nombre de modifications des poids
+     */
+    void setSteps(long steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * @return (Activation), fonction d'activation des neurones en sortie
+     */
+    public Activation getActivation() {
+        return activation;
+    }
+
+    /**
+     * @return (int), nombre de neurones en entre, sans le biais
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * @return (int), nombre de neurones en sortie
+     */
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * Poids des connexions, rangs par neurone de sortie : les poids des
+     * entres puis celui du biais. Le tableau retourn n'est pas une copie.
+     * 
+     * @return (float[]), poids des connexions [(1 + inputSize) x outputSize]
+     */
+    float[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Remplacer les poids, par exemple par ceux d'un modle fig. Les
+     * gradients prcdents ne correspondent plus  ces poids : l'tat de
+     * l'optimiseur repart de zro.
+     * 
+     * @param source
+     *            (FloatBuffer), les nouveaux poids, rangs comme getWeights()
+     */
+    void setWeights(FloatBuffer source) {
+        source.get(weights);
+        for (float[] state : optimizerState) {
+            Arrays.fill(state, 0f);
+        }
+        steps = 0;
+    }
+
+    /**
+     * @return (int), nombre de poids de connexion, biais compris
+     */
+    public int getWeightCount() {
+        return weights.length;
+    }
 }
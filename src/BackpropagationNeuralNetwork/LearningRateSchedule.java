@@ -0,0 +1,15 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * volution du taux d'apprentissage d'une priode  l'autre. Voir
+ * LearningRateSchedules pour les volutions fournies.
+ */
+public interface LearningRateSchedule {
+
+    /**
+     * @param epoch
+     *            (long), numro de la priode,  partir de 0
+     * @return (float), taux d'apprentissage de la priode
+     */
+    float getLearningRate(long epoch);
+}
@@ -0,0 +1,89 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * volutions du taux d'apprentissage fournies. Elles se combinent, par
+ * exemple 5 priodes de mise en route puis une baisse en cosinus sur 95
+ * priodes :
+ *
+ * <pre>
+ * LearningRateSchedules.warmup(5, LearningRateSchedules.cosine(0.01f, 0f, 95))
+ * </pre>
+ */
+public final class LearningRateSchedules {
+
+    private LearningRateSchedules() {
+    }
+
+    /**
+     * @param learningRate
+     *            (float), le taux d'apprentissage
+     * @return (LearningRateSchedule), le mme taux  chaque priode
+     */
+    public static LearningRateSchedule constant(float learningRate) {
+        return epoch -> learningRate;
+    }
+
+    /**
+     * Baisse par paliers : le taux est multipli par factor toutes les
+     * stepEpochs priodes
+     *
+     * @param learningRate
+     *            (float), taux d'apprentissage du premier palier
+     * @param stepEpochs
+     *            (long), nombre de priodes par palier
+     * @param factor
+     *            (float), facteur appliqu  chaque palier, 0.1 par exemple
+     * @return (LearningRateSchedule), l'volution
+     */
+    public static LearningRateSchedule step(float learningRate, long stepEpochs, float factor) {
+        if (stepEpochs < 1) {
+            throw new IllegalArgumentException("stepEpochs must be positive: " + stepEpochs);
+        }
+        return epoch -> (float) (learningRate * Math.pow(factor, epoch / stepEpochs));
+    }
+
+    /**
+     * Baisse en demi-cosinus de learningRate  minLearningRate en epochs
+     * priodes, puis minLearningRate
+     *
+     * @param learningRate
+     *            (float), taux d'apprentissage de la premire priode
+     * @param minLearningRate
+     *            (float), taux d'apprentissage final
+     * @param epochs
+     *            (long), dure de la baisse en priodes
+     * @return (LearningRateSchedule), l'volution
+     */
+    public static LearningRateSchedule cosine(float learningRate, float minLearningRate, long epochs) {
+        if (epochs < 1) {
+            throw new IllegalArgumentException("epochs must be positive: " + epochs);
+        }
+        return epoch -> {
+            if (epoch >= epochs) {
+                return minLearningRate;
+            }
+            double progress = (double) epoch / epochs;
+            return (float) (minLearningRate
+                    + (learningRate - minLearningRate) * 0.5 * (1 + Math.cos(Math.PI * progress)));
+        };
+    }
+
+    /**
+     * Mise en route : le taux monte linairement pendant warmupEpochs
+     * priodes jusqu'au premier taux de then, puis suit then, dont la priode
+     * 0 est la premire aprs la mise en route
+     *
+     * @param warmupEpochs
+     *            (long), dure de la mise en route en priodes
+     * @param then
+     *            (LearningRateSchedule), volution aprs la mise en route
+     * @return (LearningRateSchedule), l'volution
+     */
+    public static LearningRateSchedule warmup(long warmupEpochs, LearningRateSchedule then) {
+        if (warmupEpochs < 0) {
+            throw new IllegalArgumentException("warmupEpochs must not be negative: " + warmupEpochs);
+        }
+        return epoch -> epoch < warmupEpochs ? then.getLearningRate(0) * (epoch + 1) / (warmupEpochs + 1)
+                : then.getLearningRate(epoch - warmupEpochs);
+    }
+}
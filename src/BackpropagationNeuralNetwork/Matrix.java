@@ -0,0 +1,206 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Noyaux de calcul matriciel (GEMM) utiliss par l'apprentissage par lots.
+ *
+ * Toutes les matrices sont des tableaux contigus rangs par ligne
+ * ("row-major"). Le paramtre "ld" ("leading dimension") de chaque matrice est
+ * le nombre de floats entre le dbut de deux lignes conscutives, ce qui permet
+ * de travailler sur une sous-matrice (par exemple les poids d'une couche sans
+ * la colonne du biais).
+ *
+ * Les boucles sont dcoupes en blocs afin que les donnes rutilises restent
+ * dans le cache du processeur, et la boucle la plus interne parcourt toujours
+ * la mmoire de faon contigu pour que le compilateur JIT puisse la
+ * vectoriser.
+ */
+final class Matrix {
+    // Nombre de lignes de la matrice de droite gardes en cache  la fois
+    static final int BLOCK_K = 64;
+    // Nombre de colonnes de la matrice rsultat gardes en cache  la fois
+    static final int BLOCK_N = 256;
+    // Nombre de lignes de la matrice rsultat gardes en cache  la fois
+    static final int BLOCK_M = 64;
+
+    private Matrix() {
+    }
+
+    /**
+     * C[m x n] += A[m x k] . B[k x n]
+     *
+     * @param m
+     *            (int), nombre de lignes de A et de C
+     * @param n
+     *            (int), nombre de colonnes de B et de C
+     * @param k
+     *            (int), nombre de colonnes de A et de lignes de B
+     * @param a
+     *            (float[]), matrice A
+     * @param lda
+     *            (int), distance entre deux lignes de A
+     * @param b
+     *            (float[]), matrice B
+     * @param ldb
+     *            (int), distance entre deux lignes de B
+     * @param c
+     *            (float[]), matrice C, accumule
+     * @param ldc
+     *            (int), distance entre deux lignes de C
+     */
+    static void multiply(int m, int n, int k, float[] a, int lda, float[] b, int ldb, float[] c, int ldc) {
+        for (int kk = 0; kk < k; kk += BLOCK_K) {
+            int kEnd = Math.min(kk + BLOCK_K, k);
+            for (int jj = 0; jj < n; jj += BLOCK_N) {
+                int jEnd = Math.min(jj + BLOCK_N, n);
+                // Le bloc B[kk..kEnd][jj..jEnd] reste en cache pour toutes
+                // les lignes de A
+                int i = 0;
+                // Quatre lignes de C  la fois : chaque lment de B charg
+                // sert quatre fois
+                for (; i + 3 < m; i += 4) {
+                    int aRow = i * lda;
+                    int cRow0 = i * ldc;
+                    int cRow1 = cRow0 + ldc;
+                    int cRow2 = cRow1 + ldc;
+                    int cRow3 = cRow2 + ldc;
+                    for (int p = kk; p < kEnd; p++) {
+                        float a0 = a[aRow + p];
+                        float a1 = a[aRow + lda + p];
+                        float a2 = a[aRow + 2 * lda + p];
+                        float a3 = a[aRow + 3 * lda + p];
+                        int bRow = p * ldb;
+                        for (int j = jj; j < jEnd; j++) {
+                            float bpj = b[bRow + j];
+                            c[cRow0 + j] += a0 * bpj;
+                            c[cRow1 + j] += a1 * bpj;
+                            c[cRow2 + j] += a2 * bpj;
+                            c[cRow3 + j] += a3 * bpj;
+                        }
+                    }
+                }
+                for (; i < m; i++) {
+                    int aRow = i * lda;
+                    int cRow = i * ldc;
+                    for (int p = kk; p < kEnd; p++) {
+                        float aip = a[aRow + p];
+                        int bRow = p * ldb;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[cRow + j] += aip * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C[m x n] += transpose(A[k x m]) . B[k x n]
+     *
+     * @param m
+     *            (int), nombre de colonnes de A et de lignes de C
+     * @param n
+     *            (int), nombre de colonnes de B et de C
+     * @param k
+     *            (int), nombre de lignes de A et de B
+     * @param a
+     *            (float[]), matrice A
+     * @param lda
+     *            (int), distance entre deux lignes de A
+     * @param b
+     *            (float[]), matrice B
+     * @param ldb
+     *            (int), distance entre deux lignes de B
+     * @param c
+     *            (float[]), matrice C, accumule
+     * @param ldc
+     *            (int), distance entre deux lignes de C
+     */
+    static void multiplyTransposedA(int m, int n, int k, float[] a, int lda, float[] b, int ldb, float[] c,
+            int ldc) {
+        for (int ii = 0; ii < m; ii += BLOCK_M) {
+            int iEnd = Math.min(ii + BLOCK_M, m);
+            for (int jj = 0; jj < n; jj += BLOCK_N) {
+                int jEnd = Math.min(jj + BLOCK_N, n);
+                // Le bloc C[ii..iEnd][jj..jEnd] reste en cache pendant qu'on
+                // parcourt les k lignes de A et de B
+                for (int p = 0; p < k; p++) {
+                    int aRow = p * lda;
+                    int bRow = p * ldb;
+                    for (int i = ii; i < iEnd; i++) {
+                        float api = a[aRow + i];
+                        int cRow = i * ldc;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[cRow + j] += api * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C[m x n] += A[m x k] . transpose(B[n x k])
+     *
+     * Chaque lment est un produit scalaire entre une ligne de A et une ligne
+     * de B. Utilis pour les petits lots, o transposer B coterait plus cher
+     * que le calcul lui-mme.
+     *
+     * @param m
+     *            (int), nombre de lignes de A et de C
+     * @param n
+     *            (int), nombre de lignes de B et de colonnes de C
+     * @param k
+     *            (int), nombre de colonnes de A et de B
+     * @param a
+     *            (float[]), matrice A
+     * @param lda
+     *            (int), distance entre deux lignes de A
+     * @param b
+     *            (float[]), matrice B
+     * @param ldb
+     *            (int), distance entre deux lignes de B
+     * @param c
+     *            (float[]), matrice C, accumule
+     * @param ldc
+     *            (int), distance entre deux lignes de C
+     */
+    static void multiplyTransposedB(int m, int n, int k, float[] a, int lda, float[] b, int ldb, float[] c,
+            int ldc) {
+        for (int i = 0; i < m; i++) {
+            int aRow = i * lda;
+            int cRow = i * ldc;
+            for (int j = 0; j < n; j++) {
+                c[cRow + j] += Kernels.INSTANCE.dot(a, aRow, b, j * ldb, k);
+            }
+        }
+    }
+
+    /**
+     * Transposer les "cols" premires colonnes de src[rows x cols] dans
+     * dst[cols x rows].
+     *
+     * @param rows
+     *            (int), nombre de lignes de src
+     * @param cols
+     *            (int), nombre de colonnes de src  transposer
+     * @param src
+     *            (float[]), matrice source
+     * @param lds
+     *            (int), distance entre deux lignes de src
+     * @param dst
+     *            (float[]), matrice destination, de "rows" colonnes
+     */
+    static void transpose(int rows, int cols, float[] src, int lds, float[] dst) {
+        for (int ii = 0; ii < rows; ii += BLOCK_M) {
+            int iEnd = Math.min(ii + BLOCK_M, rows);
+            for (int jj = 0; jj < cols; jj += BLOCK_M) {
+                int jEnd = Math.min(jj + BLOCK_M, cols);
+                for (int i = ii; i < iEnd; i++) {
+                    for (int j = jj; j < jEnd; j++) {
+                        dst[j * rows + i] = src[i * lds + j];
+                    }
+                }
+            }
+        }
+    }
+}
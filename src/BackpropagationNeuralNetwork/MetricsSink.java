@@ -0,0 +1,18 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Destination des mesures d'apprentissage : console, fichier, systme de
+ * surveillance... Voir TrainingMetrics.addSink.
+ */
+public interface MetricsSink {
+
+    /**
+     * Recevoir les mesures d'une priode termine. Appel dans le fil
+     * d'excution de l'apprentissage : un traitement long ralentit
+     * l'apprentissage.
+     *
+     * @param metrics
+     *            (EpochMetrics), les mesures de la priode
+     */
+    void epochCompleted(EpochMetrics metrics);
+}
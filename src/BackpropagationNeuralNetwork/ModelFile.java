@@ -0,0 +1,332 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.CRC32;
+
+/**
+ * Format binaire des modles entrans.
+ *
+ * Tout est crit en petit-boutiste ("little-endian"), par mots de 4 octets :
+ *
+ * <pre>
+ * int     magie "BPNN"
+ * int     version du format
+ * int     L, nombre de couches
+ * int[L+1] nombre de neurones de chaque niveau, de l'entre vers la sortie
+ * int[L]  fonction d'activation de chaque couche (voir Activations.getId)
+ * int     somme de contrle CRC32 de tous les poids
+ * float[] poids de chaque couche, [(1 + entres) x sorties], biais en dernier
+ * </pre>
+ *
+ * L'en-tte est un multiple de 4 octets : les poids sont toujours aligns et
+ * peuvent tre lus directement  partir d'un fichier projet en mmoire. Un
+ * fichier est projet d'un seul bloc, ce qui limite sa taille  2 Go (environ
+ * 536 millions de poids).
+ */
+public final class ModelFile {
+    // "BPNN" lu en petit-boutiste
+    static final int MAGIC = 'B' | 'P' << 8 | 'N' << 16 | 'N' << 24;
+    // Version actuelle du format
+    static final int VERSION = 1;
+    // Taille maximale d'un fichier, projet d'un seul bloc
+    static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+    // Taille du tampon d'criture des poids
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private ModelFile() {
+    }
+
+    /**
+     * Enregistrer les poids d'un rseau
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau  enregistrer
+     * @param path
+     *            (Path), le fichier, remplac d'un seul coup s'il existe dj
+     * @throws IOException
+     *             si le fichier ne peut tre crit ou si le modle dpasse
+     *             2 Go
+     */
+    public static void save(BackpropagationNeuralNetwork network, Path path) throws IOException {
+        int layerCount = network.getLayerCount();
+        int[] sizes = new int[layerCount + 1];
+        FloatBuffer[] weights = new FloatBuffer[layerCount];
+        Activation[] activations = new Activation[layerCount];
+        sizes[0] = network.getLayer(0).getInputSize();
+        for (int i = 0; i < layerCount; i++) {
+            sizes[i + 1] = network.getLayer(i).getOutputSize();
+            weights[i] = FloatBuffer.wrap(network.getLayer(i).getWeights());
+            activations[i] = network.getLayer(i).getActivation();
+        }
+        write(sizes, weights, activations, path);
+    }
+
+    /**
+     * Enregistrer les poids d'un modle d'infrence
+     *
+     * @param model
+     *            (InferenceModel), le modle  enregistrer
+     * @param path
+     *            (Path), le fichier, remplac d'un seul coup s'il existe dj
+     * @throws IOException
+     *             si le fichier ne peut tre crit ou si le modle dpasse
+     *             2 Go
+     */
+    public static void save(InferenceModel model, Path path) throws IOException {
+        int[] sizes = model.getSizes();
+        FloatBuffer[] weights = new FloatBuffer[sizes.length - 1];
+        Activation[] activations = new Activation[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = model.getWeights(i);
+            activations[i] = model.getActivation(i);
+        }
+        write(sizes, weights, activations, path);
+    }
+
+    /**
+     * Charger un rseau dans le tas Java, pour continuer son apprentissage
+     *
+     * @param path
+     *            (Path), le fichier de modle
+     * @return (BackpropagationNeuralNetwork), le rseau
+     * @throws IOException
+     *             si le fichier ne peut tre lu ou n'est pas un modle valide
+     */
+    public static BackpropagationNeuralNetwork load(Path path) throws IOException {
+        ByteBuffer buffer = mapFile(path);
+        Header header = readHeader(buffer, path);
+        int[] sizes = header.sizes;
+        Layer[] layers = new Layer[sizes.length - 1];
+        for (int i = 0; i < layers.length; i++) {
+            float[] weights = new float[(1 + sizes[i]) * sizes[i + 1]];
+            buffer.asFloatBuffer().get(weights);
+            buffer.position(buffer.position() + weights.length * Float.BYTES);
+            layers[i] = new Layer(sizes[i], sizes[i + 1], header.activations[i], weights);
+        }
+        return new BackpropagationNeuralNetwork(layers);
+    }
+
+    /**
+     * Projeter un fichier de modle en mmoire, sans copier les poids
+     *
+     * @param path
+     *            (Path), le fichier de modle
+     * @return (InferenceModel), le modle
+     * @throws IOException
+     *             si le fichier ne peut tre lu ou n'est pas un modle valide
+     */
+    static InferenceModel map(Path path) throws IOException {
+        ByteBuffer buffer = mapFile(path);
+        Header header = readHeader(buffer, path);
+        int[] sizes = header.sizes;
+        FloatBuffer[] weights = new FloatBuffer[sizes.length - 1];
+        for (int i = 0; i < weights.length; i++) {
+            int count = (1 + sizes[i]) * sizes[i + 1];
+            ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            slice.limit(count * Float.BYTES);
+            weights[i] = slice.asFloatBuffer();
+            buffer.position(buffer.position() + count * Float.BYTES);
+        }
+        return new InferenceModel(sizes, weights, header.activations);
+    }
+
+    private static void write(int[] sizes, FloatBuffer[] weights, Activation[] activations, Path path)
+            throws IOException {
+        int layerCount = weights.length;
+        int[] activationIds = new int[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            if (!(activations[i] instanceof Activations)) {
+                throw new IOException("Only built-in activation functions can be saved: " + activations[i]);
+            }
+            activationIds[i] = ((Activations) activations[i]).getId();
+        }
+        long fileBytes = headerSize(layerCount);
+        for (FloatBuffer layerWeights : weights) {
+            fileBytes += (long) layerWeights.remaining() * Float.BYTES;
+        }
+        if (fileBytes > MAX_FILE_BYTES) {
+            throw new IOException("Model too large for a model file: " + fileBytes + " bytes, at most "
+                    + MAX_FILE_BYTES + ": " + path);
+        }
+
+        // Le fichier existant peut tre projet en mmoire par un autre
+        // processus (voir map) : il n'est jamais rcrit sur place. Le modle
+        // est crit dans un fichier temporaire unique  ct, forc sur le
+        // disque, puis renomm d'un seul coup par-dessus l'ancien, qui reste
+        // complet jusque-l.
+        Path temporary = createTemporary(path);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                // Les poids d'abord, couche par couche  travers un petit
+                // tampon, puis l'en-tte et la somme de contrle au dbut
+                channel.position(headerSize(layerCount));
+                CRC32 checksum = new CRC32();
+                ByteBuffer chunk = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                FloatBuffer floats = chunk.asFloatBuffer();
+                for (FloatBuffer layerWeights : weights) {
+                    FloatBuffer source = layerWeights.duplicate();
+                    while (source.hasRemaining()) {
+                        int count = Math.min(source.remaining(), floats.capacity());
+                        FloatBuffer part = source.duplicate();
+                        part.limit(part.position() + count);
+                        floats.clear();
+                        floats.put(part);
+                        source.position(source.position() + count);
+                        chunk.clear();
+                        chunk.limit(count * Float.BYTES);
+                        checksum.update(chunk.duplicate());
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                    }
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(headerSize(layerCount)).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(layerCount);
+                for (int size : sizes) {
+                    header.putInt(size);
+                }
+                for (int id : activationIds) {
+                    header.putInt(id);
+                }
+                header.putInt((int) checksum.getValue());
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Crer un fichier temporaire unique dans le rpertoire du modle, pour
+     * que deux enregistrements simultans du mme fichier ne se mlangent
+     * pas. Files.createTempFile ne donne l'accs qu'au propritaire : le
+     * fichier reprend les permissions du modle qu'il remplace, ou celles
+     * d'un fichier ordinaire (rw-r--r--).
+     */
+    private static Path createTemporary(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".tmp");
+        try {
+            PosixFileAttributeView view = Files.getFileAttributeView(temporary, PosixFileAttributeView.class);
+            if (view != null) {
+                view.setPermissions(Files.exists(absolute)
+                        ? Files.getFileAttributeView(absolute, PosixFileAttributeView.class).readAttributes()
+                                .permissions()
+                        : PosixFilePermissions.fromString("rw-r--r--"));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return temporary;
+    }
+
+    private static ByteBuffer mapFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_FILE_BYTES) {
+                throw new IOException("Model file larger than " + MAX_FILE_BYTES + " bytes cannot be mapped: "
+                        + path);
+            }
+            // La projection reste valide aprs la fermeture du canal
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Lire et valider l'en-tte, puis la somme de contrle des poids
+     *
+     * @return (Header), l'en-tte lu; le tampon est positionn sur le premier
+     *         poids
+     */
+    private static Header readHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.remaining() < 3 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a model file: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported model file version " + version + ": " + path);
+        }
+        int layerCount = buffer.getInt();
+        // Tailles, activations et somme de contrle : deux entiers par couche
+        // plus deux. Vrifi avant toute allocation, sans dbordement pour
+        // un nombre de couches corrompu.
+        if (layerCount < 1 || layerCount > (buffer.remaining() - 2 * Integer.BYTES) / (2 * Integer.BYTES)) {
+            throw new IOException("Corrupted model file header: " + path);
+        }
+        int[] sizes = new int[layerCount + 1];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = buffer.getInt();
+            if (sizes[i] < 1) {
+                throw new IOException("Corrupted model file header: " + path);
+            }
+        }
+        Activation[] activations = new Activation[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            int id = buffer.getInt();
+            activations[i] = Activations.byId(id);
+            if (activations[i] == null) {
+                throw new IOException("Unknown activation function " + id + ": " + path);
+            }
+        }
+        int expectedChecksum = buffer.getInt();
+        long weightCount = 0;
+        for (int i = 0; i < layerCount; i++) {
+            long layerWeights = (1L + sizes[i]) * sizes[i + 1];
+            // Une couche doit tenir dans un tableau de floats
+            if (layerWeights > Integer.MAX_VALUE) {
+                throw new IOException("Corrupted model file header: " + path);
+            }
+            weightCount += layerWeights;
+            if (weightCount * Float.BYTES > buffer.remaining()) {
+                throw new IOException("Truncated model file: " + path);
+            }
+        }
+        if (buffer.remaining() != weightCount * Float.BYTES) {
+            throw new IOException("Truncated model file: " + path);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate());
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("Model file checksum mismatch: " + path);
+        }
+        return new Header(sizes, activations);
+    }
+
+    private static int headerSize(int layerCount) {
+        // magie, version, L, tailles, activations, somme de contrle
+        return (3 + (layerCount + 1) + layerCount + 1) * Integer.BYTES;
+    }
+
+    /**
+     * Description du rseau lue dans l'en-tte
+     */
+    private static final class Header {
+        // Nombre de neurones de chaque niveau
+        final int[] sizes;
+        // Fonction d'activation de chaque couche
+        final Activation[] activations;
+
+        Header(int[] sizes, Activation[] activations) {
+            this.sizes = sizes;
+            this.activations = activations;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Rgle de modification des poids d'une couche  partir de ses gradients.
+ * Voir Optimizers pour les rgles fournies.
+ *
+ * L'tat de l'optimiseur (inertie, moyennes des gradients...) est rang dans
+ * des tableaux de floats de la mme taille que les poids,  ct des poids de
+ * chaque couche : state[k][i] est la k-ime valeur d'tat du poids i. Chaque
+ * modification parcourt les poids, les gradients et l'tat en une seule
+ * boucle, sans allocation.
+ *
+ * Les gradients sont ceux de la rtropropagation du rseau : entre * delta,
+ * avec delta calcul  partir de (attendu - calcul). Ils indiquent donc dj
+ * la direction qui fait baisser la perte, et sont ajouts aux poids.
+ */
+public interface Optimizer {
+
+    /**
+     * @return (int), nombre de tableaux d'tat par couche
+     */
+    int getStateCount();
+
+    /**
+     * Modifier les poids d'une couche
+     *
+     * @param weights
+     *            (float[]), poids de la couche
+     * @param state
+     *            (float[][]), tat de l'optimiseur, getStateCount() tableaux
+     *            de la taille des poids
+     * @param gradients
+     *            (float[]), gradients des poids
+     * @param length
+     *            (int), nombre de poids
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie, utilise seulement par les optimiseurs qui
+     *            en ont une
+     * @param step
+     *            (long), numro de la modification,  partir de 1
+     */
+    void update(float[] weights, float[][] state, float[] gradients, int length, float learningRate, float momentum,
+            long step);
+}
@@ -0,0 +1,176 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Optimiseurs fournis.
+ *
+ * MOMENTUM est la rgle d'origine du rseau, que les couches appliquent au
+ * fur et  mesure de la rtropropagation avec Kernels. Les autres rgles ont
+ * besoin de tous les gradients d'une couche avant de modifier ses poids.
+ *
+ * Les boucles n'ont aucune dpendance d'un poids  l'autre : le compilateur
+ * JIT les vectorise, racine carre et division comprises.
+ */
+public final class Optimizers {
+
+    /**
+     * Rgle d'origine : poids += gradient * taux + inertie * gradient
+     * prcdent. L'inertie ne passe pas par le taux d'apprentissage. tat :
+     * le gradient prcdent.
+     */
+    public static final Optimizer MOMENTUM = new Optimizer() {
+        @Override
+        public int getStateCount() {
+            return 1;
+        }
+
+        @Override
+        public void update(float[] weights, float[][] state, float[] gradients, int length, float learningRate,
+                float momentum, long step) {
+            Kernels.INSTANCE.update(weights, state[0], gradients, length, learningRate, momentum);
+        }
+
+        @Override
+        public String toString() {
+            return "MOMENTUM";
+        }
+    };
+
+    /**
+     * Inertie de Nesterov : vitesse = inertie * vitesse + taux * gradient,
+     * puis poids += inertie * vitesse + taux * gradient, c'est--dire le pas
+     * calcul l o l'inertie mne les poids. tat : la vitesse.
+     */
+    public static final Optimizer NESTEROV = new Optimizer() {
+        @Override
+        public int getStateCount() {
+            return 1;
+        }
+
+        @Override
+        public void update(float[] weights, float[][] state, float[] gradients, int length, float learningRate,
+                float momentum, long step) {
+            float[] velocity = state[0];
+            for (int i = 0; i < length; i++) {
+                float scaled = learningRate * gradients[i];
+                float v = momentum * velocity[i] + scaled;
+                velocity[i] = v;
+                weights[i] += momentum * v + scaled;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "NESTEROV";
+        }
+    };
+
+    /**
+     * RMSProp avec decay = 0.9 et epsilon = 1e-7
+     */
+    public static final Optimizer RMSPROP = rmsProp(0.9f, 1e-7f);
+
+    /**
+     * Adam avec beta1 = 0.9, beta2 = 0.999 et epsilon = 1e-7
+     */
+    public static final Optimizer ADAM = adam(0.9f, 0.999f, 1e-7f);
+
+    private Optimizers() {
+    }
+
+    /**
+     * RMSProp : chaque poids est modifi de taux * gradient / racine de la
+     * moyenne mobile des carrs de ses gradients. tat : la moyenne des
+     * carrs. L'inertie n'est pas utilise.
+     *
+     * @param decay
+     *            (float), poids de l'ancienne moyenne, entre 0 et 1
+     * @param epsilon
+     *            (float), vite la division par zro
+     * @return (Optimizer), l'optimiseur
+     */
+    public static Optimizer rmsProp(float decay, float epsilon) {
+        checkRate("decay", decay);
+        return new Optimizer() {
+            @Override
+            public int getStateCount() {
+                return 1;
+            }
+
+            @Override
+            public void update(float[] weights, float[][] state, float[] gradients, int length, float learningRate,
+                    float momentum, long step) {
+                float[] squares = state[0];
+                float keep = 1 - decay;
+                for (int i = 0; i < length; i++) {
+                    float gradient = gradients[i];
+                    float s = decay * squares[i] + keep * gradient * gradient;
+                    squares[i] = s;
+                    weights[i] += learningRate * gradient / ((float) Math.sqrt(s) + epsilon);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "RMSPROP(" + decay + ", " + epsilon + ")";
+            }
+        };
+    }
+
+    /**
+     * Adam : moyennes mobiles des gradients et de leurs carrs, corriges du
+     * biais des premires modifications. tat : les deux moyennes. L'inertie
+     * n'est pas utilise, beta1 en tient lieu.
+     *
+     * @param beta1
+     *            (float), poids de l'ancienne moyenne des gradients
+     * @param beta2
+     *            (float), poids de l'ancienne moyenne des carrs
+     * @param epsilon
+     *            (float), vite la division par zro
+     * @return (Optimizer), l'optimiseur
+     */
+    public static Optimizer adam(float beta1, float beta2, float epsilon) {
+        checkRate("beta1", beta1);
+        checkRate("beta2", beta2);
+        return new Optimizer() {
+            @Override
+            public int getStateCount() {
+                return 2;
+            }
+
+            @Override
+            public void update(float[] weights, float[][] state, float[] gradients, int length, float learningRate,
+                    float momentum, long step) {
+                float[] means = state[0];
+                float[] squares = state[1];
+                // Correction du biais reporte sur le pas et sur epsilon, une
+                // seule fois par couche plutt qu'une fois par poids
+                double correction1 = 1 - Math.pow(beta1, step);
+                double correction2 = Math.sqrt(1 - Math.pow(beta2, step));
+                float stepSize = (float) (learningRate * correction2 / correction1);
+                float correctedEpsilon = (float) (epsilon * correction2);
+                float keep1 = 1 - beta1;
+                float keep2 = 1 - beta2;
+                for (int i = 0; i < length; i++) {
+                    float gradient = gradients[i];
+                    float m = beta1 * means[i] + keep1 * gradient;
+                    float v = beta2 * squares[i] + keep2 * gradient * gradient;
+                    means[i] = m;
+                    squares[i] = v;
+                    weights[i] += stepSize * m / ((float) Math.sqrt(v) + correctedEpsilon);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "ADAM(" + beta1 + ", " + beta2 + ", " + epsilon + ")";
+            }
+        };
+    }
+
+    private static void checkRate(String name, float value) {
+        if (!(value >= 0 && value < 1)) {
+            throw new IllegalArgumentException(name + " must be in [0, 1): " + value);
+        }
+    }
+}
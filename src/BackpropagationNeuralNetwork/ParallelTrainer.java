@@ -0,0 +1,256 @@
+package BackpropagationNeuralNetwork;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Apprentissage parallle par donnes ("data-parallel") sur plusieurs coeurs.
+ *
+ * Chaque lot est dcoup en autant de tranches ("shards") qu'il y a de fils
+ * d'excution. Chaque tranche est propage vers l'avant et vers l'arrire avec
+ * son propre espace de travail, en lisant seulement les poids partags. Les
+ * gradients des tranches sont ensuite additionns deux  deux selon un arbre
+ * fixe (la tranche i reoit toujours la tranche du milieu de son intervalle),
+ * puis les poids sont modifis une seule fois avec leur moyenne.
+ *
+ * Le dcoupage et l'ordre des additions dpendent seulement du nombre de fils
+ * d'excution, jamais de l'ordonnancement : pour les mmes poids de dpart et
+ * le mme paralllisme, le rsultat est identique d'une excution  l'autre.
+ */
+public class ParallelTrainer implements AutoCloseable {
+    // Rseau entran
+    private final BackpropagationNeuralNetwork network;
+    // Fils d'excution qui calculent les tranches
+    private final ForkJoinPool pool;
+    // Nombre maximal de cas par modification des poids
+    private final int batchSize;
+    // Un espace de travail par tranche
+    private final BatchWorkspace[] workspaces;
+    // Nombre de neurones en entre du rseau
+    private final int inputSize;
+    // Nombre de neurones en sortie du rseau
+    private final int outputSize;
+
+    /**
+     * Constructeur
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau  entraner
+     * @param parallelism
+     *            (int), nombre de fils d'excution et de tranches par lot
+     * @param batchSize
+     *            (int), nombre maximal de cas dont les gradients sont
+     *            moyenns avant chaque modification des poids
+     */
+    public ParallelTrainer(BackpropagationNeuralNetwork network, int parallelism, int batchSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.network = network;
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+        this.inputSize = network.getLayer(0).getInputSize();
+        this.outputSize = network.getLayer(network.getLayerCount() - 1).getOutputSize();
+        this.workspaces = new BatchWorkspace[parallelism];
+        int shardCapacity = (batchSize + parallelism - 1) / parallelism;
+        for (int i = 0; i < parallelism; i++) {
+            workspaces[i] = network.newBatchWorkspace(shardCapacity);
+        }
+    }
+
+    /**
+     * Une priode d'apprentissage sur tous les cas, dans l'ordre.
+     *
+     * @param inputs
+     *            (float[][]), un cas en entre par ligne
+     * @param targetOutputs
+     *            (float[][]), les valeurs attendues, une ligne par cas
+     * @param learningRate
+     *            (float), taux d'apprentissage, appliqu  la moyenne des
+     *            gradients de chaque lot
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    public void trainEpoch(float[][] inputs, float[][] targetOutputs, float learningRate, float momentum) {
+        int rows = inputs.length;
+        float[] inputMatrix = new float[rows * inputSize];
+        float[] targetMatrix = new float[rows * outputSize];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(inputs[r], 0, inputMatrix, r * inputSize, inputSize);
+            System.arraycopy(targetOutputs[r], 0, targetMatrix, r * outputSize, outputSize);
+        }
+        trainEpoch(inputMatrix, targetMatrix, rows, learningRate, momentum);
+    }
+
+    /**
+     * Une priode d'apprentissage sur tous les cas, dans l'ordre.
+     *
+     * @param inputs
+     *            (float[]), matrice des cas en entre [rows x inputSize]
+     * @param targetOutputs
+     *            (float[]), matrice des valeurs attendues [rows x outputSize]
+     * @param rows
+     *            (int), nombre de cas
+     * @param learningRate
+     *            (float), taux d'apprentissage, appliqu  la moyenne des
+     *            gradients de chaque lot
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    public void trainEpoch(float[] inputs, float[] targetOutputs, int rows, float learningRate, float momentum) {
+        TrainingMetrics metrics = network.getMetrics();
+        if (metrics != null) {
+            metrics.beginEpoch(workspaces);
+        }
+        try {
+            trainBatches(inputs, targetOutputs, rows, learningRate, momentum, metrics);
+        } finally {
+            stopMeasuring();
+        }
+        if (metrics != null) {
+            metrics.endEpoch(network);
+        }
+    }
+
+    /**
+     * Une priode d'apprentissage sur tout un jeu de donnes, lu morceau par
+     * morceau. Le morceau suivant est lu en arrire-plan si le jeu de donnes
+     * le permet.
+     *
+     * @param dataset
+     *            (Dataset), le jeu de donnes
+     * @param epoch
+     *            (long), numro de la priode, qui dtermine l'ordre des cas
+     *            d'un jeu de donnes mlang
+     * @param learningRate
+     *            (float), taux d'apprentissage, appliqu  la moyenne des
+     *            gradients de chaque lot
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     * @throws IOException
+     *             si les donnes ne peuvent tre lues
+     */
+    public void trainEpoch(Dataset dataset, long epoch, float learningRate, float momentum) throws IOException {
+        TrainingMetrics metrics = network.getMetrics();
+        if (metrics != null) {
+            metrics.beginEpoch(epoch, workspaces);
+        }
+        try (DataReader reader = dataset.open(epoch)) {
+            DataChunk chunk;
+            while ((chunk = reader.next()) != null) {
+                trainBatches(chunk.getInputs(), chunk.getTargets(), chunk.getRows(), learningRate, momentum,
+                        metrics);
+            }
+        } finally {
+            stopMeasuring();
+        }
+        if (metrics != null) {
+            metrics.endEpoch(network);
+        }
+    }
+
+    private void trainBatches(float[] inputs, float[] targetOutputs, int rows, float learningRate, float momentum,
+            TrainingMetrics metrics) {
+        for (int first = 0; first < rows; first += batchSize) {
+            int count = Math.min(batchSize, rows - first);
+            pool.invoke(new ShardTask(inputs, targetOutputs, first, count, 0, workspaces.length));
+            if (metrics == null) {
+                network.applyGradients(workspaces[0], learningRate, momentum);
+            } else {
+                metrics.applyGradients(network, workspaces[0], learningRate, momentum);
+            }
+        }
+    }
+
+    private void stopMeasuring() {
+        for (BatchWorkspace workspace : workspaces) {
+            workspace.measure = false;
+        }
+    }
+
+    /**
+     * @return (int), nombre de fils d'excution
+     */
+    public int getParallelism() {
+        return workspaces.length;
+    }
+
+    /**
+     * Arrter les fils d'excution
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Calcul des tranches [firstShard, lastShard[ d'un lot, puis addition de
+     * leurs gradients dans l'espace de travail de firstShard.
+     */
+    private final class ShardTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final float[] inputs;
+        private final float[] targetOutputs;
+        // Premier cas du lot
+        private final int first;
+        // Nombre de cas du lot
+        private final int count;
+        private final int firstShard;
+        private final int lastShard;
+
+        ShardTask(float[] inputs, float[] targetOutputs, int first, int count, int firstShard, int lastShard) {
+            this.inputs = inputs;
+            this.targetOutputs = targetOutputs;
+            this.first = first;
+            this.count = count;
+            this.firstShard = firstShard;
+            this.lastShard = lastShard;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastShard - firstShard == 1) {
+                computeShard();
+                return;
+            }
+            int middle = (firstShard + lastShard) >>> 1;
+            invokeAll(new ShardTask(inputs, targetOutputs, first, count, firstShard, middle),
+                    new ShardTask(inputs, targetOutputs, first, count, middle, lastShard));
+            workspaces[firstShard].rows += workspaces[middle].rows;
+            float[][] sums = workspaces[firstShard].gradients;
+            float[][] others = workspaces[middle].gradients;
+            for (int i = 0; i < sums.length; i++) {
+                float[] sum = sums[i];
+                float[] other = others[i];
+                for (int j = 0; j < sum.length; j++) {
+                    sum[j] += other[j];
+                }
+            }
+        }
+
+        private void computeShard() {
+            BatchWorkspace workspace = workspaces[firstShard];
+            int shards = workspaces.length;
+            // Les cas sont rpartis le plus galement possible entre les
+            // tranches
+            int start = (int) ((long) count * firstShard / shards);
+            int rows = (int) ((long) count * (firstShard + 1) / shards) - start;
+            if (rows == 0) {
+                workspace.rows = 0;
+                for (float[] gradient : workspace.gradients) {
+                    Arrays.fill(gradient, 0f);
+                }
+                return;
+            }
+            int row = first + start;
+            System.arraycopy(inputs, row * inputSize, workspace.inputs, 0, rows * inputSize);
+            System.arraycopy(targetOutputs, row * outputSize, workspace.targets, 0, rows * outputSize);
+            network.computeGradients(workspace, workspace.inputs, workspace.targets, rows);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package BackpropagationNeuralNetwork;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Modle d'infrence compress, obtenu avec InferenceModel.quantize aprs
+ * l'apprentissage.
+ *
+ * Deux formats de poids :
+ * <ul>
+ * <li>INT8 : chaque poids est un entier de -127  127, avec une chelle par
+ * neurone (par ligne de poids) gale au plus grand poids de la ligne en
+ * valeur absolue divis par 127. Quatre fois moins de mmoire que des
+ * floats.</li>
+ * <li>FLOAT16 : chaque poids est arrondi au float16 (IEEE 754 demi-prcision)
+ * le plus proche. Deux fois moins de mmoire, et une erreur relative d'au
+ * plus 2^-11 par poids.</li>
+ * </ul>
+ * Les biais restent des floats : il n'y en a qu'un par neurone, et une erreur
+ * sur un biais dcale directement la sortie du neurone.
+ *
+ * Les poids sont dcompresss au vol dans le produit scalaire (voir
+ * Kernels.dotInt8 et Kernels.dotHalf), sans jamais recrer de tableau de
+ * floats : moins d'octets lus en mmoire par prdiction, ce qui compte ds que
+ * les poids ne tiennent plus dans le cache du processeur. Avec INT8,
+ * l'chelle n'est applique qu'une fois par neurone, sur la somme.
+ *
+ * Comme InferenceModel, le modle n'est jamais modifi aprs sa cration et
+ * predict peut tre appel par plusieurs fils d'excution en mme temps.
+ */
+public final class QuantizedModel {
+
+    /**
+     * Format des poids quantifis
+     */
+    public enum Format {
+        /** Entiers 8 bits avec une chelle par neurone */
+        INT8,
+        /** Floats 16 bits IEEE 754 */
+        FLOAT16
+    }
+
+    // Plus grande valeur absolue d'un poids INT8
+    private static final float INT8_MAX = 127f;
+
+    // Format des poids
+    private final Format format;
+    // Nombre de neurones de chaque niveau : entre, couches caches, sortie
+    private final int[] sizes;
+    // Poids INT8 de chaque couche, [entres x sorties], null en FLOAT16
+    private final byte[][] bytes;
+    // chelle de chaque neurone de chaque couche, null en FLOAT16
+    private final float[][] scales;
+    // Poids FLOAT16 de chaque couche, [entres x sorties], null en INT8
+    private final short[][] halves;
+    // Biais de chaque neurone de chaque couche
+    private final float[][] biases;
+    // Fonction d'activation de chaque couche
+    private final Activation[] activations;
+    // Taille de l'espace de travail ncessaire  predict
+    private final int scratchSize;
+    // Espace de travail par fil d'excution pour predict(float[], float[])
+    private final ThreadLocal<float[]> threadScratch;
+
+    private QuantizedModel(Format format, int[] sizes, byte[][] bytes, float[][] scales, short[][] halves,
+            float[][] biases, Activation[] activations) {
+        this.format = format;
+        this.sizes = sizes;
+        this.bytes = bytes;
+        this.scales = scales;
+        this.halves = halves;
+        this.biases = biases;
+        this.activations = activations;
+        int widest = 0;
+        for (int i = 1; i < sizes.length - 1; i++) {
+            widest = Math.max(widest, sizes[i]);
+        }
+        // Deux tampons en alternance pour les couches caches; la dernire
+        // couche crit directement dans output
+        this.scratchSize = 2 * widest;
+        this.threadScratch = ThreadLocal.withInitial(this::newScratch);
+    }
+
+    /**
+     * Quantifier les poids d'un modle fig
+     *
+     * @param model
+     *            (InferenceModel), le modle
+     * @param format
+     *            (Format), format des poids
+     * @return (QuantizedModel), le modle quantifi
+     */
+    static QuantizedModel quantize(InferenceModel model, Format format) {
+        int[] sizes = model.getSizes();
+        int layerCount = sizes.length - 1;
+        byte[][] bytes = format == Format.INT8 ? new byte[layerCount][] : null;
+        float[][] scales = format == Format.INT8 ? new float[layerCount][] : null;
+        short[][] halves = format == Format.FLOAT16 ? new short[layerCount][] : null;
+        float[][] biases = new float[layerCount][];
+        Activation[] activations = new Activation[layerCount];
+        for (int l = 0; l < layerCount; l++) {
+            int inputSize = sizes[l];
+            int outputSize = sizes[l + 1];
+            FloatBuffer weights = model.getWeights(l);
+            float[] row = new float[inputSize + 1];
+            biases[l] = new float[outputSize];
+            activations[l] = model.getActivation(l);
+            if (format == Format.INT8) {
+                bytes[l] = new byte[inputSize * outputSize];
+                scales[l] = new float[outputSize];
+            } else {
+                halves[l] = new short[inputSize * outputSize];
+            }
+            for (int i = 0; i < outputSize; i++) {
+                weights.get(row);
+                biases[l][i] = row[inputSize];
+                if (format == Format.INT8) {
+                    scales[l][i] = quantizeRow(row, inputSize, bytes[l], i * inputSize);
+                } else {
+                    for (int j = 0; j < inputSize; j++) {
+                        float weight = Math.max(-Half.MAX_VALUE, Math.min(Half.MAX_VALUE, row[j]));
+                        halves[l][i * inputSize + j] = Half.fromFloat(weight);
+                    }
+                }
+            }
+        }
+        return new QuantizedModel(format, sizes, bytes, scales, halves, biases, activations);
+    }
+
+    // Quantifier une ligne de poids en INT8, retourne l'chelle de la ligne
+    private static float quantizeRow(float[] row, int length, byte[] target, int targetOffset) {
+        float max = 0;
+        for (int j = 0; j < length; j++) {
+            max = Math.max(max, Math.abs(row[j]));
+        }
+        if (max == 0) {
+            // Ligne nulle : les octets restent  0
+            return 0;
+        }
+        float scale = max / INT8_MAX;
+        for (int j = 0; j < length; j++) {
+            target[targetOffset + j] = (byte) Math.round(row[j] / scale);
+        }
+        return scale;
+    }
+
+    /**
+     * Classer un cas avec l'espace de travail du fil d'excution courant.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @param output
+     *            (float[]), reoit les valeurs d'activation en sortie
+     */
+    public void predict(float[] input, float[] output) {
+        predict(input, output, threadScratch.get());
+    }
+
+    /**
+     * Classer un cas avec un espace de travail fourni par l'appelant.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @param output
+     *            (float[]), reoit les valeurs d'activation en sortie
+     * @param scratch
+     *            (float[]), espace de travail cr par newScratch(), utilis
+     *            par un seul fil d'excution  la fois
+     */
+    public void predict(float[] input, float[] output, float[] scratch) {
+        Kernels kernels = Kernels.INSTANCE;
+        float[] current = input;
+        int currentOffset = 0;
+        int half = scratchSize / 2;
+        int last = biases.length - 1;
+        for (int l = 0; l <= last; l++) {
+            int inputSize = sizes[l];
+            int outputSize = sizes[l + 1];
+            float[] bias = biases[l];
+            float[] next = l == last ? output : scratch;
+            int nextOffset = l == last ? 0 : (l % 2) * half;
+            if (format == Format.INT8) {
+                byte[] layerBytes = bytes[l];
+                float[] layerScales = scales[l];
+                for (int i = 0; i < outputSize; i++) {
+                    next[nextOffset + i] = bias[i] + layerScales[i]
+                            * kernels.dotInt8(layerBytes, i * inputSize, current, currentOffset, inputSize);
+                }
+            } else {
+                short[] layerHalves = halves[l];
+                for (int i = 0; i < outputSize; i++) {
+                    next[nextOffset + i] = bias[i]
+                            + kernels.dotHalf(layerHalves, i * inputSize, current, currentOffset, inputSize);
+                }
+            }
+            activations[l].activate(next, nextOffset, outputSize);
+            current = next;
+            currentOffset = nextOffset;
+        }
+    }
+
+    /**
+     * Classer un cas. Pratique, mais alloue le tableau rsultat.
+     *
+     * @param input
+     *            (float[]), les valeurs en entre
+     * @return (float[]), les valeurs d'activation en sortie
+     */
+    public float[] predict(float[] input) {
+        float[] output = new float[getOutputSize()];
+        predict(input, output);
+        return output;
+    }
+
+    /**
+     * Crer un espace de travail pour predict(float[], float[], float[])
+     *
+     * @return (float[]), un nouvel espace de travail
+     */
+    public float[] newScratch() {
+        return new float[scratchSize];
+    }
+
+    /**
+     * @return (Format), format des poids
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Mmoire occupe par les poids, les chelles et les biais
+     *
+     * @return (long), nombre d'octets
+     */
+    public long getWeightBytes() {
+        long total = 0;
+        for (int l = 0; l < biases.length; l++) {
+            total += 4L * biases[l].length;
+            if (format == Format.INT8) {
+                total += bytes[l].length + 4L * scales[l].length;
+            } else {
+                total += 2L * halves[l].length;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return (int[]), nombre de neurones de chaque niveau, de l'entre vers
+     *         la sortie
+     */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * @return (int), nombre de neurones en entre
+     */
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    /**
+     * @return (int), nombre de neurones en sortie
+     */
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+}
@@ -0,0 +1,65 @@
+package BackpropagationNeuralNetwork;
+
+import java.util.Locale;
+
+/**
+ * Rsultat d'un candidat d'une recherche d'hyperparamtres : sa meilleure
+ * perte de validation et le nombre de priodes apprises avant son
+ * limination, son arrt ou la fin de la recherche.
+ */
+public final class SearchResult {
+    // Hyperparamtres du candidat
+    private final Hyperparameters hyperparameters;
+    // Rseau du candidat avec les poids de sa meilleure priode, null s'il a
+    // t limin
+    private final BackpropagationNeuralNetwork network;
+    // Meilleure perte moyenne par cas sur le jeu de validation
+    private final double validationLoss;
+    // Nombre de priodes apprises
+    private final long epochs;
+
+    SearchResult(Hyperparameters hyperparameters, BackpropagationNeuralNetwork network, double validationLoss,
+            long epochs) {
+        this.hyperparameters = hyperparameters;
+        this.network = network;
+        this.validationLoss = validationLoss;
+        this.epochs = epochs;
+    }
+
+    /**
+     * @return (Hyperparameters), hyperparamtres du candidat
+     */
+    public Hyperparameters getHyperparameters() {
+        return hyperparameters;
+    }
+
+    /**
+     * @return (BackpropagationNeuralNetwork), rseau du candidat avec les
+     *         poids de sa meilleure priode, ou null s'il a t limin avant la fin de la
+     *         recherche : son rseau n'est pas gard en mmoire
+     */
+    public BackpropagationNeuralNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return (double), meilleure perte moyenne par cas sur le jeu de
+     *         validation
+     */
+    public double getValidationLoss() {
+        return validationLoss;
+    }
+
+    /**
+     * @return (long), nombre de priodes apprises
+     */
+    public long getEpochs() {
+        return epochs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "perte %.6f aprs %d priodes : %s", validationLoss, epochs,
+                hyperparameters);
+    }
+}
@@ -0,0 +1,150 @@
+package BackpropagationNeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Espace de recherche des hyperparamtres : les valeurs possibles de chaque
+ * hyperparamtre. Les candidats sont soit toutes les combinaisons (grid),
+ * soit un tirage au hasard parmi elles (random), utile quand la grille est
+ * trop grande pour tre essaye en entier.
+ */
+public final class SearchSpace {
+    // Tailles possibles des couches caches
+    private final List<int[]> hiddenSizes = new ArrayList<>();
+    // Taux d'apprentissage possibles
+    private float[] learningRates = { BackpropagationNeuralNetwork.LEARNING_RATE };
+    // Inerties possibles
+    private float[] momentums = { BackpropagationNeuralNetwork.MOMENTUM };
+    // Graines possibles des poids de dpart
+    private long[] seeds = { 0 };
+
+    /**
+     * Ajouter une topologie possible
+     *
+     * @param sizes
+     *            (int[]), nombre de neurones de chaque couche cache
+     * @return (SearchSpace), cet espace
+     */
+    public SearchSpace hiddenSizes(int... sizes) {
+        for (int size : sizes) {
+            if (size < 1) {
+                throw new IllegalArgumentException("A layer needs at least one neuron: " + size);
+            }
+        }
+        hiddenSizes.add(sizes.clone());
+        return this;
+    }
+
+    /**
+     * @param values
+     *            (float[]), taux d'apprentissage possibles
+     * @return (SearchSpace), cet espace
+     */
+    public SearchSpace learningRates(float... values) {
+        learningRates = checkNotEmpty(values).clone();
+        return this;
+    }
+
+    /**
+     * @param values
+     *            (float[]), inerties possibles
+     * @return (SearchSpace), cet espace
+     */
+    public SearchSpace momentums(float... values) {
+        momentums = checkNotEmpty(values).clone();
+        return this;
+    }
+
+    /**
+     * @param values
+     *            (long[]), graines possibles des poids de dpart; plusieurs
+     *            graines mesurent la chance du tirage des poids
+     * @return (SearchSpace), cet espace
+     */
+    public SearchSpace seeds(long... values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("at least one value is needed");
+        }
+        seeds = values.clone();
+        return this;
+    }
+
+    /**
+     * @return (long), nombre de combinaisons
+     */
+    public long size() {
+        return (long) hiddenSizes.size() * learningRates.length * momentums.length * seeds.length;
+    }
+
+    /**
+     * @return (List), toutes les combinaisons
+     */
+    public List<Hyperparameters> grid() {
+        checkSize();
+        List<Hyperparameters> candidates = new ArrayList<>();
+        for (long i = 0; i < size(); i++) {
+            candidates.add(get(i));
+        }
+        return candidates;
+    }
+
+    /**
+     * Tirer des combinaisons au hasard, sans remise
+     *
+     * @param count
+     *            (int), nombre de combinaisons, toutes si count dpasse
+     *            size()
+     * @param seed
+     *            (long), graine du tirage
+     * @return (List), les combinaisons tires
+     */
+    public List<Hyperparameters> random(int count, long seed) {
+        checkSize();
+        long size = size();
+        if (count >= size) {
+            return grid();
+        }
+        // Tirage de Floyd : count index distincts parmi size
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<Long> picked = new LinkedHashSet<>();
+        for (long j = size - count; j < size; j++) {
+            if (!picked.add(random.nextLong(j + 1))) {
+                picked.add(j);
+            }
+        }
+        List<Hyperparameters> candidates = new ArrayList<>();
+        for (long index : picked) {
+            candidates.add(get(index));
+        }
+        return candidates;
+    }
+
+    // Combinaison numro index, les graines variant le plus vite
+    private Hyperparameters get(long index) {
+        int seed = (int) (index % seeds.length);
+        index /= seeds.length;
+        int momentum = (int) (index % momentums.length);
+        index /= momentums.length;
+        int learningRate = (int) (index % learningRates.length);
+        index /= learningRates.length;
+        return new Hyperparameters(hiddenSizes.get((int) index), learningRates[learningRate], momentums[momentum],
+                seeds[seed]);
+    }
+
+    private void checkSize() {
+        if (hiddenSizes.isEmpty()) {
+            throw new IllegalStateException("no hidden layer sizes to search");
+        }
+    }
+
+    private static float[] checkNotEmpty(float[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("at least one value is needed");
+        }
+        return values;
+    }
+}
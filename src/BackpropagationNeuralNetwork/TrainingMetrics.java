@@ -0,0 +1,308 @@
+package BackpropagationNeuralNetwork;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Mesures de l'apprentissage, priode par priode : perte, cas par seconde,
+ * temps de propagation avant, de rtropropagation et de modification des
+ * poids, norme des gradients et des poids de chaque couche, octets allous et
+ * passages du ramasse-miettes.
+ *
+ * Les mesures sont prises par BackpropagationNeuralNetwork.train(Dataset,
+ * ...) et par les mthodes trainEpoch de ParallelTrainer quand un
+ * TrainingMetrics est attach au rseau avec setMetrics. Elles sont ensuite
+ * envoyes  chaque MetricsSink et restent lisibles par JMX (voir register).
+ *
+ * Sans TrainingMetrics attach, l'apprentissage ne fait qu'un test par lot
+ * et ne lit jamais l'horloge. Avec, chaque lot lit l'horloge quatre fois et
+ * parcourt ses gradients une fois de plus pour leur norme.
+ */
+public final class TrainingMetrics implements TrainingMetricsMXBean {
+    // Destinations des mesures
+    private final List<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+    // Mesures de la dernire priode termine, lues par JMX
+    private volatile EpochMetrics last;
+    // Nombre de priodes termines
+    private volatile long epochCount;
+    // Nom JMX, null si le TrainingMetrics n'est pas enregistr
+    private ObjectName objectName;
+
+    // Priode en cours, seulement dans le fil d'excution de l'apprentissage
+    private long epoch;
+    private long startNanos;
+    private long updateNanos;
+    private long startAllocatedBytes;
+    private long startGcCount;
+    private int updates;
+    private double[] gradientNormSums;
+    private BatchWorkspace[] workspaces;
+
+    /**
+     * Ajouter une destination des mesures
+     *
+     * @param sink
+     *            (MetricsSink), reoit les mesures de chaque priode
+     * @return (TrainingMetrics), ces mesures
+     */
+    public TrainingMetrics addSink(MetricsSink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * Retirer une destination des mesures
+     *
+     * @param sink
+     *            (MetricsSink), la destination  retirer
+     */
+    public void removeSink(MetricsSink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Publier ces mesures dans le serveur JMX de la plateforme, sous le nom
+     * "BackpropagationNeuralNetwork:type=TrainingMetrics,name=[name]"
+     *
+     * @param name
+     *            (String), nom qui distingue cet apprentissage des autres
+     * @return (ObjectName), le nom JMX
+     * @throws JMException
+     *             si le nom est invalide ou dj utilis
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("BackpropagationNeuralNetwork:type=TrainingMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Retirer ces mesures du serveur JMX
+     *
+     * @throws JMException
+     *             si le retrait choue
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * @return (EpochMetrics), mesures de la dernire priode termine, ou
+     *         null avant la fin de la premire
+     */
+    public EpochMetrics getLast() {
+        return last;
+    }
+
+    @Override
+    public long getEpochCount() {
+        return epochCount;
+    }
+
+    @Override
+    public long getEpoch() {
+        EpochMetrics metrics = last;
+        return metrics == null ? -1 : metrics.getEpoch();
+    }
+
+    @Override
+    public double getLoss() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getLoss();
+    }
+
+    @Override
+    public double getSamplesPerSecond() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getSamplesPerSecond();
+    }
+
+    @Override
+    public long getForwardNanos() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getForwardNanos();
+    }
+
+    @Override
+    public long getBackwardNanos() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getBackwardNanos();
+    }
+
+    @Override
+    public long getUpdateNanos() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getUpdateNanos();
+    }
+
+    @Override
+    public double[] getGradientNorms() {
+        EpochMetrics metrics = last;
+        return metrics == null ? new double[0] : metrics.getGradientNorms();
+    }
+
+    @Override
+    public double[] getWeightNorms() {
+        EpochMetrics metrics = last;
+        return metrics == null ? new double[0] : metrics.getWeightNorms();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getAllocatedBytes();
+    }
+
+    @Override
+    public long getGcCount() {
+        EpochMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getGcCount();
+    }
+
+    /**
+     * Dbut d'une priode numrote par le nombre de priodes dj termines
+     *
+     * @param workspaces
+     *            (BatchWorkspace[]), espaces de travail qui calculent les
+     *            gradients pendant la priode
+     */
+    void beginEpoch(BatchWorkspace... workspaces) {
+        beginEpoch(epochCount, workspaces);
+    }
+
+    /**
+     * Dbut d'une priode : remise  zro des compteurs
+     *
+     * @param epoch
+     *            (long), numro de la priode
+     * @param workspaces
+     *            (BatchWorkspace[]), espaces de travail qui calculent les
+     *            gradients pendant la priode
+     */
+    void beginEpoch(long epoch, BatchWorkspace... workspaces) {
+        this.epoch = epoch;
+        this.workspaces = workspaces;
+        for (BatchWorkspace workspace : workspaces) {
+            workspace.measure = true;
+            workspace.samples = 0;
+            workspace.lossSum = 0;
+            workspace.forwardNanos = 0;
+            workspace.backwardNanos = 0;
+        }
+        int layerCount = workspaces[0].gradients.length;
+        if (gradientNormSums == null || gradientNormSums.length != layerCount) {
+            gradientNormSums = new double[layerCount];
+        } else {
+            Arrays.fill(gradientNormSums, 0);
+        }
+        updates = 0;
+        updateNanos = 0;
+        startGcCount = gcCount();
+        startAllocatedBytes = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Modifier les poids du rseau avec les gradients d'un espace de travail,
+     * en mesurant la norme des gradients et la dure de la modification
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau
+     * @param workspace
+     *            (BatchWorkspace), espace de travail contenant les gradients
+     * @param learningRate
+     *            (float), taux d'apprentissage
+     * @param momentum
+     *            (float), inertie qui sert  sortir des minimums locaux
+     */
+    void applyGradients(BackpropagationNeuralNetwork network, BatchWorkspace workspace, float learningRate,
+            float momentum) {
+        float[][] gradients = workspace.gradients;
+        for (int i = 0; i < gradients.length; i++) {
+            // Norme de la moyenne des gradients du lot, celle qui modifie
+            // les poids
+            gradientNormSums[i] += norm(gradients[i]) / Math.max(1, workspace.rows);
+        }
+        updates++;
+        long started = System.nanoTime();
+        network.applyGradients(workspace, learningRate, momentum);
+        updateNanos += System.nanoTime() - started;
+    }
+
+    /**
+     * Fin d'une priode : envoi des mesures  chaque destination
+     *
+     * @param network
+     *            (BackpropagationNeuralNetwork), le rseau entran
+     */
+    void endEpoch(BackpropagationNeuralNetwork network) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = allocatedBytes();
+        long gcCount = gcCount() - startGcCount;
+        long samples = 0;
+        double lossSum = 0;
+        long forwardNanos = 0;
+        long backwardNanos = 0;
+        for (BatchWorkspace workspace : workspaces) {
+            workspace.measure = false;
+            samples += workspace.samples;
+            lossSum += workspace.lossSum;
+            forwardNanos += workspace.forwardNanos;
+            backwardNanos += workspace.backwardNanos;
+        }
+        workspaces = null;
+        double[] gradientNorms = new double[gradientNormSums.length];
+        double[] weightNorms = new double[gradientNormSums.length];
+        for (int i = 0; i < gradientNorms.length; i++) {
+            gradientNorms[i] = updates == 0 ? 0 : gradientNormSums[i] / updates;
+            weightNorms[i] = norm(network.getLayer(i).getWeights());
+        }
+        EpochMetrics metrics = new EpochMetrics(epoch, samples, lossSum, elapsedNanos, forwardNanos, backwardNanos,
+                updateNanos, gradientNorms, weightNorms,
+                allocatedBytes < 0 ? -1 : allocatedBytes - startAllocatedBytes, gcCount);
+        last = metrics;
+        epochCount++;
+        for (MetricsSink sink : sinks) {
+            sink.epochCompleted(metrics);
+        }
+    }
+
+    private static double norm(float[] values) {
+        double sum = 0;
+        for (float value : values) {
+            sum += value * value;
+        }
+        return Math.sqrt(sum);
+    }
+
+    // Octets allous par le fil d'excution courant, -1 si la JVM ne les
+    // compte pas
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,67 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Interface JMX de TrainingMetrics : les mesures de la dernire priode
+ * termine, lisibles avec JConsole, VisualVM ou tout client JMX.
+ */
+public interface TrainingMetricsMXBean {
+
+    /**
+     * @return (long), nombre de priodes termines
+     */
+    long getEpochCount();
+
+    /**
+     * @return (long), numro de la dernire priode termine, -1 avant la
+     *         premire
+     */
+    long getEpoch();
+
+    /**
+     * @return (double), perte moyenne par cas de la dernire priode
+     */
+    double getLoss();
+
+    /**
+     * @return (double), nombre de cas appris par seconde pendant la dernire
+     *         priode
+     */
+    double getSamplesPerSecond();
+
+    /**
+     * @return (long), temps de propagation vers l'avant en nanosecondes
+     */
+    long getForwardNanos();
+
+    /**
+     * @return (long), temps de rtropropagation en nanosecondes
+     */
+    long getBackwardNanos();
+
+    /**
+     * @return (long), temps de modification des poids en nanosecondes
+     */
+    long getUpdateNanos();
+
+    /**
+     * @return (double[]), norme moyenne des gradients de chaque couche
+     */
+    double[] getGradientNorms();
+
+    /**
+     * @return (double[]), norme des poids de chaque couche
+     */
+    double[] getWeightNorms();
+
+    /**
+     * @return (long), octets allous par le fil d'excution de
+     *         l'apprentissage pendant la dernire priode
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return (long), nombre de passages du ramasse-miettes pendant la
+     *         dernire priode
+     */
+    long getGcCount();
+}
@@ -0,0 +1,27 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Rgle de choix des poids de dpart d'une couche. Voir WeightInitializers
+ * pour les rgles fournies.
+ *
+ * Les poids sont rangs comme dans Layer : une ligne de (1 + entres) poids
+ * par neurone en sortie, le biais en dernier. Pour une mme graine, une rgle
+ * doit toujours donner les mmes poids, quel que soit le nombre de fils
+ * d'excution qui les remplissent.
+ */
+public interface WeightInitializer {
+
+    /**
+     * Remplir les poids d'une couche
+     *
+     * @param weights
+     *            (float[]), poids de la couche, [(1 + entres) x sorties]
+     * @param inputSize
+     *            (int), nombre de neurones en entre (sans le biais)
+     * @param outputSize
+     *            (int), nombre de neurones en sortie
+     * @param seed
+     *            (long), graine des nombres alatoires
+     */
+    void initialize(float[] weights, int inputSize, int outputSize, long seed);
+}
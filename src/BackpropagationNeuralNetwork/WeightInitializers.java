@@ -0,0 +1,137 @@
+package BackpropagationNeuralNetwork;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Rgles de dpart fournies.
+ *
+ * Chaque neurone tire ses poids de son propre SplittableRandom, dont la
+ * graine est tire  son tour, dans l'ordre des neurones, du gnrateur de la
+ * couche : les lignes de poids sont donc indpendantes et, au-del de
+ * PARALLEL_THRESHOLD poids, remplies en parallle sans changer le rsultat.
+ * Aucun gnrateur n'est partag entre fils d'excution, contrairement 
+ * java.util.Random qui synchronise chaque tirage.
+ */
+public final class WeightInitializers {
+    //  partir de ce nombre de poids, les lignes sont remplies en parallle
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * Rgle d'origine : poids et biais uniformes entre -2 et 2, quelle que
+     * soit la taille de la couche. Sature vite les sigmoides des couches
+     * larges.
+     */
+    public static final WeightInitializer UNIFORM = uniform("UNIFORM", 2f);
+
+    /**
+     * Xavier/Glorot : poids uniformes entre -limite et limite, avec limite =
+     * racine(6 / (entres + sorties)), et biais  0. Garde la variance des
+     * activations  peu prs constante d'une couche  l'autre; pour SIGMOID,
+     * TANH et SOFTMAX.
+     */
+    public static final WeightInitializer XAVIER = new RowInitializer("XAVIER", false) {
+        @Override
+        double limit(int inputSize, int outputSize) {
+            return Math.sqrt(6.0 / (inputSize + outputSize));
+        }
+    };
+
+    /**
+     * He : poids uniformes entre -limite et limite, avec limite = racine(6 /
+     * entres), et biais  0. Compense la moiti des activations annules
+     * par RELU.
+     */
+    public static final WeightInitializer HE = new RowInitializer("HE", false) {
+        @Override
+        double limit(int inputSize, int outputSize) {
+            return Math.sqrt(6.0 / inputSize);
+        }
+    };
+
+    private WeightInitializers() {
+    }
+
+    /**
+     * Poids et biais uniformes entre -limit et limit
+     *
+     * @param limit
+     *            (float), plus grande valeur absolue d'un poids
+     * @return (WeightInitializer), la rgle
+     */
+    public static WeightInitializer uniform(float limit) {
+        return uniform("UNIFORM(" + limit + ")", limit);
+    }
+
+    private static WeightInitializer uniform(String name, float limit) {
+        if (!(limit >= 0)) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        return new RowInitializer(name, true) {
+            @Override
+            double limit(int inputSize, int outputSize) {
+                return limit;
+            }
+        };
+    }
+
+    /**
+     * @return (long), une graine diffrente  chaque appel, pour les couches
+     *         cres sans graine
+     */
+    static long randomSeed() {
+        // Le constructeur sans graine de SplittableRandom est sr entre fils
+        // d'excution
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Poids uniformes tirs ligne par ligne, un gnrateur par neurone
+     */
+    private abstract static class RowInitializer implements WeightInitializer {
+        private final String name;
+        // true si les biais sont tirs comme les poids, sinon ils valent 0
+        private final boolean biases;
+
+        RowInitializer(String name, boolean biases) {
+            this.name = name;
+            this.biases = biases;
+        }
+
+        /**
+         * @return (double), plus grande valeur absolue d'un poids
+         */
+        abstract double limit(int inputSize, int outputSize);
+
+        @Override
+        public void initialize(float[] weights, int inputSize, int outputSize, long seed) {
+            double limit = limit(inputSize, outputSize);
+            int stride = inputSize + 1;
+            SplittableRandom layerRandom = new SplittableRandom(seed);
+            long[] rowSeeds = new long[outputSize];
+            for (int o = 0; o < outputSize; o++) {
+                rowSeeds[o] = layerRandom.nextLong();
+            }
+            IntStream rows = IntStream.range(0, outputSize);
+            if (weights.length >= PARALLEL_THRESHOLD) {
+                rows = rows.parallel();
+            }
+            rows.forEach(o -> {
+                SplittableRandom random = new SplittableRandom(rowSeeds[o]);
+                int offset = o * stride;
+                int end = biases ? offset + stride : offset + inputSize;
+                for (int i = offset; i < end; i++) {
+                    weights[i] = limit == 0 ? 0f : (float) random.nextDouble(-limit, limit);
+                }
+                if (!biases) {
+                    weights[offset + inputSize] = 0f;
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package BackpropagationNeuralNetwork;
+
+/**
+ * Espace de travail d'un seul cas ("arena") : les activations et les erreurs
+ * de tous les niveaux du rseau ranges dans un seul tableau, allou une fois
+ *  la construction du rseau, avec les gradients d'un cas des optimiseurs
+ * autres que MOMENTUM. Un apprentissage cas par cas n'alloue donc jamais
+ * rien, quelle que soit la profondeur du rseau.
+ *
+ * Le niveau 0 est l'entre, le niveau i + 1 est la sortie de la couche i.
+ */
+final class Workspace {
+    // Toutes les valeurs intermdiaires du rseau
+    final float[] arena;
+    // Dbut des activations de chaque niveau dans arena
+    final int[] activationOffsets;
+    // Dbut des erreurs de chaque niveau dans arena; pas d'erreur pour
+    // l'entre
+    final int[] errorOffsets;
+    // Gradients d'un cas pour chaque couche, allous seulement pour les
+    // optimiseurs autres que MOMENTUM
+    private final float[][] gradients;
+
+    /**
+     * Constructeur
+     *
+     * @param layers
+     *            (Layer[]), les couches du rseau
+     */
+    Workspace(Layer[] layers) {
+        activationOffsets = new int[layers.length + 1];
+        errorOffsets = new int[layers.length + 1];
+        int size = layers[0].getInputSize();
+        errorOffsets[0] = -1;
+        for (int i = 0; i < layers.length; i++) {
+            int width = layers[i].getOutputSize();
+            activationOffsets[i + 1] = size;
+            errorOffsets[i + 1] = size + width;
+            size += 2 * width;
+        }
+        arena = new float[size];
+        gradients = new float[layers.length][];
+        allocateGradients(layers);
+    }
+
+    /**
+     * Allouer les gradients d'un cas des couches dont l'optimiseur en a
+     * besoin,  la construction et  chaque changement d'optimiseur du
+     * rseau
+     *
+     * @param layers
+     *            (Layer[]), les couches du rseau
+     */
+    void allocateGradients(Layer[] layers) {
+        for (int i = 0; i < layers.length; i++) {
+            if (layers[i].getOptimizer() != Optimizers.MOMENTUM && gradients[i] == null) {
+                gradients[i] = new float[layers[i].getWeightCount()];
+            }
+        }
+    }
+
+    /**
+     * Espace de travail pour les gradients d'un cas d'une couche
+     *
+     * @param layer
+     *            (Layer), la couche
+     * @param index
+     *            (int), index de la couche
+     * @return (float[]), un tableau de la taille des poids, ou null avec
+     *         MOMENTUM qui n'en a pas besoin. Il n'est allou ici que si
+     *         l'optimiseur de la couche a t chang directement par
+     *         Layer.setOptimizer.
+     */
+    float[] gradients(Layer layer, int index) {
+        if (layer.getOptimizer() == Optimizers.MOMENTUM) {
+            return null;
+        }
+        if (gradients[index] == null) {
+            gradients[index] = new float[layer.getWeightCount()];
+        }
+        return gradients[index];
+    }
+}